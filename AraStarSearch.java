@@ -0,0 +1,199 @@
+/* *****************************************************************************
+ *  Description: Anytime Repairing A* (ARA*, Likhachev et al. 2003). Runs A*
+ *               with the heuristic inflated by a weight epsilon, which finds a
+ *               solution at most epsilon times longer than the shortest one
+ *               and usually finds it quickly. It then lowers epsilon and
+ *               searches again, reusing every g-value found so far: only
+ *               boards whose g dropped since they were last expanded are
+ *               reopened. The ratio of the solution's length to min(g + h)
+ *               over all unexpanded boards bounds it against the shortest.
+ *               With a consistent heuristic a completed pass also proves it
+ *               within the pass's weight, but the pattern database is not
+ *               consistent: a board can wait in INCONS with g + h below the
+ *               solution, so only the ratio is trusted. The last pass, at
+ *               epsilon 1, reopens boards at once as A* does, and passes
+ *               repeat until the ratio reaches 1.
+ *
+ *               A deadline or a budget of expanded nodes stops the improvement
+ *               early; the best solution so far is kept with its bound. The
+ *               first solution is always completed. Priorities g + epsilon * h
+ *               are kept in eighths so they stay integers for the bucket queue,
+ *               with epsilon rounded down to an eighth.
+ **************************************************************************** */
+
+import java.util.ArrayList;
+import java.util.List;
+
+class AraStarSearch {
+    // priorities count eighths of a move
+    private static final int SCALE = 8;
+    // epsilon drops by at least this many eighths per pass
+    private static final int EPSILON_STEP = 4;
+    // expansions between looks at the clock
+    private static final int CLOCK_CHECK_MASK = (1 << 8) - 1;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final SolverStats stats;
+    private final long deadlineNanos;
+    private final long nodeBudget;
+    private final long memoryLimit;
+    private final long bytesPerNode;
+    // current weight in eighths
+    private int weight;
+    private final TranspositionTable reached;
+    // boards expanded in the current pass
+    private TranspositionTable closed;
+    private BucketQueue<Node> open = new BucketQueue<Node>();
+    // boards whose g dropped after they were expanded in this pass
+    private List<Node> inconsistent = new ArrayList<Node>();
+    private Node goal;
+    private double bound = Double.POSITIVE_INFINITY;
+
+    // prepare a search from initial with weight epsilon >= 1. deadlineNanos is a
+    // System.nanoTime() value (Long.MAX_VALUE for none) and nodeBudget caps the expansions
+    // (0 for none); a positive memoryLimit caps the estimated bytes retained
+    AraStarSearch(Board initial, Heuristic heuristic, SolverStats stats, double epsilon,
+                  long deadlineNanos, long nodeBudget, long memoryLimit, long bytesPerNode) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.stats = stats;
+        this.deadlineNanos = deadlineNanos;
+        this.nodeBudget = nodeBudget;
+        this.memoryLimit = memoryLimit;
+        this.bytesPerNode = bytesPerNode;
+        weight = Math.max(SCALE, (int) Math.floor(epsilon * SCALE));
+        reached = new TranspositionTable(initial);
+        closed = new TranspositionTable(initial);
+    }
+
+    // a board, the moves that reached it and the node it was reached from
+    private static final class Node {
+        private final Board board;
+        private final int moves;
+        private final int estimate;
+        private final Node previous;
+
+        private Node(Board board, int moves, int estimate, Node previous) {
+            this.board = board;
+            this.moves = moves;
+            this.estimate = estimate;
+            this.previous = previous;
+        }
+    }
+
+    // search until the solution is optimal or the deadline or budget runs out, and return
+    // the boards of the best solution found from the initial board to the goal. The board
+    // must be solvable
+    Board[] solve() {
+        Node root = new Node(initial, 0, heuristic.estimate(initial), null);
+        reached.offer(initial, 0);
+        stats.generated(1);
+        if (initial.isGoal()) goal = root;
+        else insert(root);
+
+        while (true) {
+            boolean finished = improvePath();
+            List<Node> unexpanded = drain();
+            int lowerBound = goal.moves;
+            for (Node node : unexpanded) {
+                lowerBound = Math.min(lowerBound, node.moves + node.estimate);
+            }
+            // only the unexpanded boards prove a bound: the heuristic need not be consistent
+            bound = Math.min(bound, lowerBound == 0 ? 1.0 : (double) goal.moves / lowerBound);
+            if (!finished || lowerBound == goal.moves) break;
+
+            // next pass: lower the weight, at least to what the bound already proves
+            weight = Math.max(SCALE, Math.min(weight - EPSILON_STEP,
+                                              (int) Math.floor(bound * SCALE)));
+            closed = new TranspositionTable(initial);
+            for (Node node : unexpanded) insert(node);
+        }
+        Board[] boards = new Board[goal.moves + 1];
+        for (Node node = goal; node != null; node = node.previous) boards[node.moves] = node.board;
+        return boards;
+    }
+
+    // proven ratio of the solution's length to the shortest solution's
+    double bound() {
+        return bound;
+    }
+
+    // expand boards in order of g + weight * h until none could lead to a shorter solution
+    // at this weight. Returns false if the deadline or budget stopped it after a solution
+    // was found
+    private boolean improvePath() {
+        while (!open.isEmpty() && (goal == null || open.minF() < goal.moves * SCALE)) {
+            if (goal != null && outOfTime()) return false;
+            Node node = open.delMin();
+            if (reached.get(node.board) < node.moves) continue;
+            closed.offer(node.board, 0);
+            expand(node);
+        }
+        return true;
+    }
+
+    private void expand(Node node) {
+        stats.expanded();
+        int blank = node.board.blankCell();
+        int movesToNeighbor = node.moves + 1;
+        int legal = node.board.legalMoves();
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legal & (1 << direction)) == 0) continue;
+            Board b = node.board.moved(direction);
+            if (!reached.offer(b, movesToNeighbor)) {
+                stats.pruned();
+                continue;
+            }
+            stats.generated(1);
+            // the neighbor's blank is where the moved tile came from
+            int tile = b.tileAt(blank);
+            int estimate = heuristic.update(b, node.estimate, tile, b.blankCell(), blank);
+            Node child = new Node(b, movesToNeighbor, estimate, node);
+            if (estimate == 0 && b.isGoal()) {
+                if (goal == null || movesToNeighbor < goal.moves) goal = child;
+                continue;
+            }
+            // cannot lead to a shorter solution than the one in hand
+            if (goal != null && movesToNeighbor + estimate >= goal.moves) continue;
+            // at weight 1 reopen at once, so the pass is A* and finishes optimal
+            if (weight > SCALE && closed.get(b) >= 0) inconsistent.add(child);
+            else insert(child);
+        }
+
+        long retained = stats.nodesGenerated() * bytesPerNode + reached.footprintBytes()
+                + closed.footprintBytes();
+        stats.observe(open.size() + inconsistent.size(), retained);
+        if (memoryLimit > 0 && retained > memoryLimit) {
+            throw new SearchLimitException("ARA* exceeded the memory limit of " + memoryLimit
+                                                   + " bytes after " + stats.nodesGenerated()
+                                                   + " nodes");
+        }
+    }
+
+    private boolean outOfTime() {
+        if (nodeBudget > 0 && stats.nodesExpanded() >= nodeBudget) return true;
+        return deadlineNanos != Long.MAX_VALUE && (stats.nodesExpanded() & CLOCK_CHECK_MASK) == 0
+                && System.nanoTime() >= deadlineNanos;
+    }
+
+    // empty the open list and the inconsistent boards, keeping only each board's node with
+    // its current g
+    private List<Node> drain() {
+        List<Node> unexpanded = new ArrayList<Node>();
+        while (!open.isEmpty()) {
+            Node node = open.delMin();
+            if (reached.get(node.board) == node.moves) unexpanded.add(node);
+        }
+        for (Node node : inconsistent) {
+            if (reached.get(node.board) == node.moves) unexpanded.add(node);
+        }
+        open = new BucketQueue<Node>();
+        inconsistent = new ArrayList<Node>();
+        return unexpanded;
+    }
+
+    private void insert(Node node) {
+        open.insert(node, node.moves * SCALE + weight * node.estimate, node.estimate);
+    }
+}
@@ -0,0 +1,94 @@
+/* *****************************************************************************
+ *  Description: Streams the boards of a batch file written by BatchWriter.
+ *               The file is memory-mapped read-only, so records are decoded
+ *               straight from the page cache with no read buffer and no text
+ *               parsing; a board up to 4x4 is rebuilt from its packed word in
+ *               one load. A single mapping is limited to 2 GB, so the file is
+ *               mapped in windows of at most WINDOW_BYTES and the next window
+ *               is mapped when fewer bytes than the widest record remain.
+ **************************************************************************** */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class BatchReader implements Iterator<Board>, Closeable {
+    // first bytes of a batch file
+    static final int MAGIC = 0x42524431; // "BRD1"
+    // magic and board count
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    // widest record: the dimension byte and a byte per tile of the widest board
+    private static final int MAX_RECORD_BYTES = 1 + Board.MAX_DIMENSION * Board.MAX_DIMENSION;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long size;
+    private final long count;
+    private MappedByteBuffer window;
+    // file offset of the window's first byte
+    private long windowStart;
+    private long read = 0;
+
+    // open the batch in file
+    public BatchReader(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+        if (size < HEADER_BYTES || window.getInt() != MAGIC) {
+            channel.close();
+            throw new IllegalArgumentException("not a board batch: " + file);
+        }
+        count = window.getLong();
+    }
+
+    // number of boards in the batch
+    public long count() {
+        return count;
+    }
+
+    // number of boards returned so far, which is also the index of the next one
+    public long position() {
+        return read;
+    }
+
+    public boolean hasNext() {
+        return read < count;
+    }
+
+    public Board next() {
+        if (!hasNext()) throw new NoSuchElementException("no more boards in " + file);
+        if (window.remaining() < MAX_RECORD_BYTES) map(windowStart + window.position());
+        int n = window.get() & 0xFF;
+        read++;
+        if (n <= Board.PACKED_MAX_DIMENSION) return Board.fromKey(n, window.getLong());
+        byte[] tiles = new byte[n * n];
+        window.get(tiles);
+        return Board.fromTiles(n, tiles);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // map the window starting at file offset start, unless the current one already runs to
+    // the end of the file
+    private void map(long start) {
+        if (window != null && windowStart + window.limit() == size) return;
+        try {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                 Math.min(WINDOW_BYTES, size - start));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not map " + file, e);
+        }
+    }
+}
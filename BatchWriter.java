@@ -0,0 +1,99 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 BatchWriter.java
+ *  Execution:    java-algs4 BatchWriter output.bin puzzle1.txt puzzle2.txt ...
+ *  Dependencies: Board.java BatchReader.java
+ *
+ *  Description: Writes many boards back to back into one binary batch file,
+ *               which BatchReader streams back without parsing. The file is
+ *               the magic "BRD1" and the number of boards (a long, filled in on
+ *               close), then one record per board: its dimension as a byte,
+ *               then the packed word of a board up to 4x4 (8 bytes) or one
+ *               byte per tile in row-major order for wider boards.
+ *
+ *               Run as a program, it converts puzzle text files into a batch:
+ *
+ *               % java-algs4 BatchWriter corpus.bin puzzle*.txt
+ *               corpus.bin: 149 boards, 1831 bytes
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class BatchWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long count = 0;
+
+    // start a new batch in file, replacing any file already there
+    public BatchWriter(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(BatchReader.MAGIC).putLong(0L);
+    }
+
+    // append board to the batch
+    public void write(Board board) throws IOException {
+        int n = board.dimension();
+        int bytes = 1 + (board.isPacked() ? Long.BYTES : n * n);
+        if (buffer.remaining() < bytes) flush();
+        buffer.put((byte) n);
+        if (board.isPacked()) buffer.putLong(board.key());
+        else {
+            for (int cell = 0; cell < n * n; cell++) buffer.put((byte) board.tileAt(cell));
+        }
+        count++;
+    }
+
+    // boards written so far
+    public long count() {
+        return count;
+    }
+
+    // write out what is buffered and record the number of boards in the header
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            channel.write(header, Integer.BYTES);
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // board in a puzzle text file: the dimension, then the tiles row by row
+    static Board readText(String filename) {
+        In in = new In(filename);
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                tiles[i][j] = in.readInt();
+            }
+        }
+        return new Board(tiles);
+    }
+
+    // convert the puzzle text files into one batch
+    public static void main(String[] args) throws IOException {
+        File output = new File(args[0]);
+        try (BatchWriter writer = new BatchWriter(output)) {
+            for (int i = 1; i < args.length; i++) writer.write(readText(args[i]));
+            StdOut.printf("%s: %d boards, ", output, writer.count());
+        }
+        StdOut.printf("%d bytes%n", output.length());
+    }
+}
@@ -0,0 +1,200 @@
+/* *****************************************************************************
+ *  Description: Bidirectional heuristic search that meets in the middle (MM,
+ *               Holte et al. 2016). One frontier grows forward from the initial
+ *               board, guided by the solver's heuristic, and one backward from
+ *               the goal, guided by the Manhattan distance to the initial board.
+ *               Both frontiers order nodes by max(g + h, 2g), so neither
+ *               expands a node past the midpoint of a shortest path.
+ *
+ *               Each direction keeps its own transposition table of the fewest
+ *               moves found so far. A board generated in one direction is looked
+ *               up in the other's table, and a hit gives a complete path whose
+ *               length bounds the answer. The search stops once that bound is no
+ *               larger than the smallest priority left, which proves it optimal.
+ *               The path is rebuilt by walking down each table from the meeting
+ *               board, so nodes carry no parent links.
+ **************************************************************************** */
+
+import java.util.ArrayList;
+import java.util.List;
+
+class BidirectionalSearch {
+    private final Board initial;
+    private final Board goal;
+    private final Heuristic heuristic;
+    private final SolverStats stats;
+    private final long memoryLimit;
+    private final long bytesPerNode;
+    // initialCell[tile] = cell of tile on the initial board, the backward search's target
+    private final int[] initialCell;
+    private final int n;
+    // length of the shortest path found so far, and the board where its halves meet
+    private int bound = Integer.MAX_VALUE;
+    private Board meeting;
+
+    // prepare a search from initial guided by heuristic, counting into stats; a positive
+    // memoryLimit caps the estimated bytes retained, counting bytesPerNode for every node
+    BidirectionalSearch(Board initial, Heuristic heuristic, SolverStats stats, long memoryLimit,
+                        long bytesPerNode) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.stats = stats;
+        this.memoryLimit = memoryLimit;
+        this.bytesPerNode = bytesPerNode;
+        n = initial.dimension();
+        initialCell = new int[n * n];
+        for (int cell = 0; cell < n * n; cell++) initialCell[initial.tileAt(cell)] = cell;
+        goal = goalBoard(n);
+    }
+
+    // a board and the moves that reached it from its direction's root
+    private static final class Node {
+        private final Board board;
+        private final int moves;
+        private final int estimate;
+
+        private Node(Board board, int moves, int estimate) {
+            this.board = board;
+            this.moves = moves;
+            this.estimate = estimate;
+        }
+    }
+
+    // one direction of the search
+    private final class Frontier {
+        private final boolean forward;
+        private final BucketQueue<Node> open = new BucketQueue<Node>();
+        private final TranspositionTable reached = new TranspositionTable(initial);
+        private Frontier other;
+
+        private Frontier(Board root, boolean forward) {
+            this.forward = forward;
+            reached.offer(root, 0);
+            insert(new Node(root, 0, forward ? heuristic.estimate(root) : estimateToInitial(root)));
+            stats.generated(1);
+        }
+
+        // smallest priority left, or MAX_VALUE if the frontier is exhausted
+        private int minPriority() {
+            return open.isEmpty() ? Integer.MAX_VALUE : open.minF();
+        }
+
+        private void insert(Node node) {
+            int priority = Math.max(node.moves + node.estimate, 2 * node.moves);
+            open.insert(node, priority, node.estimate);
+        }
+
+        // expand the node of smallest priority, recording any path that meets the other side
+        private void expandNext() {
+            Node node = open.delMin();
+            if (reached.get(node.board) < node.moves) return;
+            stats.expanded();
+            int blank = node.board.blankCell();
+            int movesToNeighbor = node.moves + 1;
+            int legal = node.board.legalMoves();
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                if ((legal & (1 << direction)) == 0) continue;
+                Board b = node.board.moved(direction);
+                if (!reached.offer(b, movesToNeighbor)) {
+                    stats.pruned();
+                    continue;
+                }
+                stats.generated(1);
+                int otherMoves = other.reached.get(b);
+                if (otherMoves >= 0 && movesToNeighbor + otherMoves < bound) {
+                    bound = movesToNeighbor + otherMoves;
+                    meeting = b;
+                }
+                // the neighbor's blank is where the moved tile came from
+                int tile = b.tileAt(blank);
+                int estimate = forward
+                               ? heuristic.update(b, node.estimate, tile, b.blankCell(), blank)
+                               : node.estimate - distanceToInitial(tile, b.blankCell())
+                                       + distanceToInitial(tile, blank);
+                if (movesToNeighbor + estimate < bound) {
+                    insert(new Node(b, movesToNeighbor, estimate));
+                }
+            }
+        }
+
+        // boards from b back to this direction's root, each one move closer than the last
+        private List<Board> pathFrom(Board b) {
+            List<Board> path = new ArrayList<Board>();
+            int moves = reached.get(b);
+            path.add(b);
+            while (moves > 0) {
+                Board closer = null;
+                int legal = b.legalMoves();
+                for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                    if ((legal & (1 << direction)) == 0) continue;
+                    Board neighbor = b.moved(direction);
+                    int neighborMoves = reached.get(neighbor);
+                    if (neighborMoves >= 0 && neighborMoves < moves) {
+                        closer = neighbor;
+                        moves = neighborMoves;
+                    }
+                }
+                b = closer;
+                path.add(b);
+            }
+            return path;
+        }
+    }
+
+    // run both directions until the shortest path is proven, and return its boards from
+    // the initial board to the goal. The board must be solvable
+    Board[] solve() {
+        if (initial.isGoal()) return new Board[] { initial };
+        Frontier forward = new Frontier(initial, true);
+        Frontier backward = new Frontier(goal, false);
+        forward.other = backward;
+        backward.other = forward;
+
+        while (true) {
+            int forwardPriority = forward.minPriority();
+            int backwardPriority = backward.minPriority();
+            if (bound <= Math.min(forwardPriority, backwardPriority)) break;
+            if (forwardPriority <= backwardPriority) forward.expandNext();
+            else backward.expandNext();
+
+            long retained = stats.nodesGenerated() * bytesPerNode
+                    + forward.reached.footprintBytes() + backward.reached.footprintBytes();
+            stats.observe(forward.open.size() + backward.open.size(), retained);
+            if (memoryLimit > 0 && retained > memoryLimit) {
+                throw new SearchLimitException("bidirectional search exceeded the memory limit of "
+                                                       + memoryLimit + " bytes after "
+                                                       + stats.nodesGenerated() + " nodes");
+            }
+        }
+
+        // initial ... meeting from the forward table, then meeting ... goal from the backward
+        List<Board> first = forward.pathFrom(meeting);
+        List<Board> second = backward.pathFrom(meeting);
+        Board[] boards = new Board[first.size() + second.size() - 1];
+        for (int i = 0; i < first.size(); i++) boards[i] = first.get(first.size() - 1 - i);
+        for (int i = 1; i < second.size(); i++) boards[first.size() - 1 + i] = second.get(i);
+        return boards;
+    }
+
+    // sum of the Manhattan distances of all tiles from their cells on the initial board
+    private int estimateToInitial(Board board) {
+        int estimate = 0;
+        for (int cell = 0; cell < n * n; cell++) {
+            int tile = board.tileAt(cell);
+            if (tile != 0) estimate += distanceToInitial(tile, cell);
+        }
+        return estimate;
+    }
+
+    private int distanceToInitial(int tile, int cell) {
+        int target = initialCell[tile];
+        return Math.abs(cell / n - target / n) + Math.abs(cell % n - target % n);
+    }
+
+    // the solved n x n board
+    private static Board goalBoard(int n) {
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n * n - 1; i++) tiles[i / n][i % n] = i + 1;
+        return new Board(tiles);
+    }
+}
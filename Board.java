@@ -5,21 +5,66 @@
  **************************************************************************** */
 
 import edu.princeton.cs.algs4.Stack;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
 import java.util.Arrays;
 
 public class Board {
-    private final int[][] currentBoard;
-    private int missingTileX = -1;
-    private int missingTileY = -1;
+    // directions the blank can move in; a move and its opposite differ in the lowest bit
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    // boards up to 4x4 keep every tile in 4 bits of a single long
+    static final int PACKED_MAX_DIMENSION = 4;
+    // wider boards keep one unsigned byte per tile, which caps tiles at 255
+    static final int MAX_DIMENSION = 16;
+
+    private final int n;
+    // tile at cell (row * n + col) lives in bits [4 * cell, 4 * cell + 4); only used when n <= 4
+    private long packedTiles;
+    // row-major tiles for boards wider than 4x4, null for packed boards
+    private final byte[] wideTiles;
+    private int blankCell;
     private int cachedManhattanDistance = -1;
     private int cachedHammingDistance = -1;
+    // walking-distance reduced states on rows and columns, kept current by every slide
+    // once WalkingDistanceHeuristic has set them; -1 when unknown
+    private long cachedWalkingRows = -1;
+    private long cachedWalkingColumns = -1;
 
     // create a board from an n-by-b array of tiles,
     // where tiles[row][col] = tile at (row, col)
     public Board(int[][] tiles) {
-        currentBoard = tiles.clone();
-        findMissingTile();
+        n = tiles.length;
+        if (n > MAX_DIMENSION) {
+            throw new IllegalArgumentException("board dimension cannot exceed " + MAX_DIMENSION);
+        }
+        long packed = 0L;
+        byte[] wide = n > PACKED_MAX_DIMENSION ? new byte[n * n] : null;
+        int blank = -1;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int cell = i * n + j;
+                int tile = tiles[i][j];
+                if (tile == 0) blank = cell;
+                if (wide != null) wide[cell] = (byte) tile;
+                else packed |= (long) tile << (cell << 2);
+            }
+        }
+        packedTiles = packed;
+        wideTiles = wide;
+        blankCell = blank;
+    }
+
+    // board sharing the dimension of a parent, used when sliding tiles
+    private Board(int n, long packedTiles, byte[] wideTiles, int blankCell) {
+        this.n = n;
+        this.packedTiles = packedTiles;
+        this.wideTiles = wideTiles;
+        this.blankCell = blankCell;
     }
 
     // string representation of this board
@@ -28,7 +73,7 @@ public class Board {
         s.append(dimension() + "\n");
         for (int i = 0; i < dimension(); i++) {
             for (int j = 0; j < dimension(); j++) {
-                s.append(String.format("%2d ", currentBoard[i][j]));
+                s.append(String.format("%2d ", tileAt(i * n + j)));
             }
             s.append("\n");
         }
@@ -37,7 +82,7 @@ public class Board {
 
     // board dimension n
     public int dimension() {
-        return currentBoard.length;
+        return n;
     }
 
     // number of tiles out of place
@@ -45,12 +90,9 @@ public class Board {
         // if cachedHammingDistance is -1 then calculate it, otherwise return the cached
         if (cachedHammingDistance == -1) {
             int hamming = 0;
-            int expectedValue = 1;
-            for (int i = 0; i < dimension(); i++) {
-                for (int j = 0; j < dimension(); j++) {
-                    if (currentBoard[i][j] != expectedValue && (currentBoard[i][j] != 0)) hamming++;
-                    expectedValue++;
-                }
+            for (int cell = 0; cell < n * n; cell++) {
+                int tile = tileAt(cell);
+                if (tile != 0 && tile != cell + 1) hamming++;
             }
             cachedHammingDistance = hamming;
         }
@@ -59,17 +101,13 @@ public class Board {
 
     // sum of Manhattan distances between tiles and goal
     public int manhattan() {
-        // if the cachedManhattanDistance is not null, then calculate it otherwise return cached
+        // if the cachedManhattanDistance is -1 then calculate it, otherwise return cached
         if (cachedManhattanDistance == -1) {
             int manhattan = 0;
-            int expectedValue = 1;
-
-            for (int i = 0; i < dimension(); i++) {
-                for (int j = 0; j < dimension(); j++) {
-                    if (currentBoard[i][j] != expectedValue && currentBoard[i][j] != 0) {
-                        manhattan += calcManhattanDistance(currentBoard[i][j], i, j);
-                    }
-                    expectedValue++;
+            for (int cell = 0; cell < n * n; cell++) {
+                int tile = tileAt(cell);
+                if (tile != 0 && tile != cell + 1) {
+                    manhattan += calcManhattanDistance(tile, cell / n, cell % n);
                 }
             }
             cachedManhattanDistance = manhattan;
@@ -89,180 +127,337 @@ public class Board {
     public boolean equals(Object other) {
         if (this == other) return true;
         else if (other == null || this.getClass() != other.getClass()) return false;
-        Board boardToCompore = (Board) other;
-        return (Arrays.deepEquals(this.getCurrentBoard(), boardToCompore.getCurrentBoard()));
+        Board boardToCompare = (Board) other;
+        return n == boardToCompare.n && packedTiles == boardToCompare.packedTiles
+                && Arrays.equals(wideTiles, boardToCompare.wideTiles);
+    }
+
+    // hash consistent with equals; a single mix of the packed word for boards up to 4x4
+    public int hashCode() {
+        if (wideTiles != null) return Arrays.hashCode(wideTiles);
+        long h = packedTiles * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
     }
 
-    // all neighboring boards
+    // all neighboring boards. Allocates a stack per call, so the searches step through
+    // legalMoves() and moved() instead
     public Iterable<Board> neighbors() {
         Stack<Board> neighbors = new Stack<Board>();
-
-        boolean neighborAllowedAbove = false;
-        boolean neighborALlowedBelow = false;
-        boolean neighborAllowedLeft = false;
-        boolean neighborAllowedRight = false;
-
-        if (missingTileX >= 0 && missingTileX < dimension() - 1) neighborALlowedBelow = true;
-        if (missingTileX <= dimension() - 1 && missingTileX > 0) neighborAllowedAbove = true;
-        if (missingTileY >= 0 && missingTileY < dimension() - 1) neighborAllowedRight = true;
-        if (missingTileY > 0 && missingTileY <= dimension() - 1) neighborAllowedLeft = true;
-
-        if (neighborAllowedAbove) {
-            // exchange missing tile with tile directly above it:
-            int[][] neighbor = cloneArray(currentBoard);
-            // move zero tile up <=> move tile above the zero tile down
-            neighbor[missingTileX][missingTileY] = neighbor[missingTileX - 1][missingTileY];
-            neighbor[missingTileX - 1][missingTileY] = 0;
-
-            Board neighborBoard = new Board(neighbor);
-            if (findGoalRow(currentBoard[missingTileX - 1][missingTileY]) == (missingTileX - 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            }
-            else if (findGoalRow(currentBoard[missingTileX - 1][missingTileY]) > (missingTileX
-                    - 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() - 1;
-            }
-            else neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            neighborBoard.missingTileX = missingTileX - 1;
-            neighborBoard.missingTileY = missingTileY;
-            neighbors.push(new Board(neighbor));
+        int legal = legalMoves();
+        for (int direction = UP; direction <= RIGHT; direction++) {
+            if ((legal & (1 << direction)) != 0) neighbors.push(moved(direction));
         }
+        return neighbors;
+    }
 
-        if (neighborALlowedBelow) {
-            // exchange missing tile with tile directly below it:
-            int[][] neighbor = cloneArray(currentBoard);
-            // move zero tile down <=> move tile below the zero tile up
-            neighbor[missingTileX][missingTileY] = neighbor[missingTileX + 1][missingTileY];
-            neighbor[missingTileX + 1][missingTileY] = 0;
+    // bit set of the directions the blank can move in: bit d is set if direction d is legal.
+    // Lets a search enumerate moves without allocating
+    public int legalMoves() {
+        int row = blankCell / n;
+        int col = blankCell % n;
+        int legal = 0;
+        if (row > 0) legal |= 1 << UP;
+        if (row < n - 1) legal |= 1 << DOWN;
+        if (col > 0) legal |= 1 << LEFT;
+        if (col < n - 1) legal |= 1 << RIGHT;
+        return legal;
+    }
 
-            Board neighborBoard = new Board(neighbor);
-            if (findGoalRow(currentBoard[missingTileX + 1][missingTileY]) == (missingTileX + 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            }
-            else if (findGoalRow(currentBoard[missingTileX + 1][missingTileY]) > (missingTileX
-                    + 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            }
-            else neighborBoard.cachedManhattanDistance = manhattan() - 1;
-            neighborBoard.missingTileX = missingTileX + 1;
-            neighborBoard.missingTileY = missingTileY;
-            neighbors.push(new Board(neighbor));
+    // the direction that undoes a move in the given direction
+    public static int opposite(int direction) {
+        return direction ^ 1;
+    }
+
+    // move the blank one step in direction, changing this board in place. The cached
+    // Manhattan and Hamming distances are updated by the moved tile's delta. A board that
+    // is used as a hash key or shared with other code must not be moved
+    public void applyMove(int direction) {
+        if (direction < UP || direction > RIGHT || (legalMoves() & (1 << direction)) == 0) {
+            throw new IllegalArgumentException("illegal move: " + direction);
         }
+        slideInPlace(targetCell(direction));
+    }
 
-        if (neighborAllowedLeft) {
-            // exchange missing tile with tile directly left of it:
-            int[][] neighbor = cloneArray(currentBoard);
-            // move zero tile to the left <=> left tile moves right
-            neighbor[missingTileX][missingTileY] = neighbor[missingTileX][missingTileY - 1];
-            neighbor[missingTileX][missingTileY - 1] = 0;
+    // undo applyMove(direction), restoring this board and its cached distances
+    public void undoMove(int direction) {
+        applyMove(opposite(direction));
+    }
 
-            Board neighborBoard = new Board(neighbor);
-            if (findGoalCol(currentBoard[missingTileX][missingTileY - 1]) == (missingTileY - 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            }
-            else if (findGoalCol(currentBoard[missingTileX][missingTileY - 1]) > (missingTileY
-                    - 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() - 1;
+    // a board that is obtained by exchanging any pair of tiles
+    public Board twin() {
+        int i;
+        if (blankCell / n == 0) i = 1;
+        else i = 0;
+        return swap(i * n, i * n + 1);
+    }
+
+    // unit testing (ungraded): random boards of every size from 2x2 to 6x6 must keep
+    // their tiles through packing, find each tile with cellOf, agree with the inversion
+    // count on solvability and come back unchanged from every move and its undo
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int checked = 0;
+        for (int n = 2; n <= 6; n++) {
+            for (int trial = 0; trial < trials; trial++) {
+                int[] order = new int[n * n];
+                for (int cell = 0; cell < order.length; cell++) order[cell] = cell;
+                StdRandom.shuffle(order);
+                int[][] tiles = new int[n][n];
+                for (int cell = 0; cell < order.length; cell++) {
+                    tiles[cell / n][cell % n] = order[cell];
+                }
+                Board board = new Board(tiles);
+
+                check(board.isPacked() == (n <= PACKED_MAX_DIMENSION), "packing", board);
+                for (int cell = 0; cell < order.length; cell++) {
+                    check(board.tileAt(cell) == order[cell], "tileAt", board);
+                    check(board.cellOf(order[cell]) == cell, "cellOf", board);
+                }
+                if (board.isPacked()) {
+                    check(fromKey(n, board.key()).equals(board), "fromKey", board);
+                }
+                check(board.isSolvable() == solvableByInversions(order, n), "isSolvable", board);
+                check(board.twin().isSolvable() != board.isSolvable(), "twin", board);
+
+                Board copy = board.mutableCopy();
+                int legal = copy.legalMoves();
+                for (int direction = UP; direction <= RIGHT; direction++) {
+                    if ((legal & (1 << direction)) == 0) continue;
+                    copy.manhattan();
+                    copy.applyMove(direction);
+                    Board fresh = new Board(copy.tiles());
+                    check(copy.manhattan() == fresh.manhattan(), "manhattan after a move", copy);
+                    check(copy.key() == fresh.key() && copy.equals(fresh), "applyMove", copy);
+                    copy.undoMove(direction);
+                    check(copy.equals(board) && copy.key() == board.key(), "undoMove", copy);
+                }
+                checked++;
             }
-            else neighborBoard.cachedManhattanDistance = manhattan() + 1;
-            neighborBoard.missingTileX = missingTileX;
-            neighborBoard.missingTileY = missingTileY - 1;
-            neighbors.push(new Board(neighbor));
         }
+        StdOut.println(checked + " boards checked");
+    }
 
-        if (neighborAllowedRight) {
-            // exchange missing tile with tile directly to right:
-            int[][] neighbor = cloneArray(currentBoard);
-            // missing tile moves right <=> right tile moves left
-            neighbor[missingTileX][missingTileY] = neighbor[missingTileX][missingTileY + 1];
-            neighbor[missingTileX][missingTileY + 1] = 0;
-
-            Board neighborBoard = new Board(neighbor);
-            if (findGoalCol(currentBoard[missingTileX][missingTileY + 1]) == (missingTileY + 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
+    // solvability by the textbook rule: an even number of inversions on odd boards, and
+    // on even boards an odd sum of inversions and the blank's row
+    private static boolean solvableByInversions(int[] order, int n) {
+        int inversions = 0;
+        int blankRow = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] == 0) {
+                blankRow = i / n;
+                continue;
             }
-            else if (findGoalCol(currentBoard[missingTileX][missingTileY + 1]) > (missingTileY
-                    + 1)) {
-                neighborBoard.cachedManhattanDistance = manhattan() + 1;
+            for (int j = i + 1; j < order.length; j++) {
+                if (order[j] != 0 && order[j] < order[i]) inversions++;
             }
-            else neighborBoard.cachedManhattanDistance = manhattan() - 1;
-            neighbors.push(new Board(neighbor));
-            neighborBoard.missingTileX = missingTileX;
-            neighborBoard.missingTileY = missingTileY + 1;
         }
+        if (n % 2 == 1) return inversions % 2 == 0;
+        return (inversions + blankRow) % 2 == 1;
+    }
 
-        return neighbors;
+    private static void check(boolean ok, String what, Board board) {
+        if (!ok) throw new IllegalStateException(what + " is wrong for\n" + board);
     }
 
-    private int findGoalRow(int displacedNumber) {
-        // find the goalRow and goalColumn for our displacedNumber.
-        if (displacedNumber % dimension() == 0) {
-            return displacedNumber / dimension() - 1;
-        }
-        // for every other position
-        else {
-            return displacedNumber / dimension();
+    // the tiles as a fresh n-by-n array
+    private int[][] tiles() {
+        int[][] tiles = new int[n][n];
+        for (int cell = 0; cell < n * n; cell++) tiles[cell / n][cell % n] = tileAt(cell);
+        return tiles;
+    }
+
+    // compact 64-bit key: the packed word itself up to 4x4, a hash of the tiles beyond.
+    // Keys of wide boards can collide, so callers must confirm a match with equals()
+    long key() {
+        if (wideTiles == null) return packedTiles;
+        long h = 0xCBF29CE484222325L;
+        for (byte tile : wideTiles) {
+            h = (h ^ (tile & 0xFF)) * 0x100000001B3L;
         }
+        return h;
     }
 
-    private int findGoalCol(int displacedNumber) {
-        // find the goalRow and goalColumn for our displacedNumber.
-        if (displacedNumber % dimension() == 0) {
-            return dimension() - 1;
+    // can this board reach the goal? Sliding a tile left or right keeps the row-major
+    // order of the tiles; sliding it up or down moves it past n - 1 tiles. So on odd
+    // boards the permutation parity never changes, and on even boards it flips with
+    // every change of the blank's row. The goal has even parity and its blank on the
+    // last row. Parity comes from the cycle count of the permutation in O(n^2)
+    boolean isSolvable() {
+        int cells = n * n;
+        // position of each tile in row-major order with the blank skipped
+        int[] order = new int[cells];
+        int position = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int tile = tileAt(cell);
+            if (tile != 0) order[position++] = tile - 1;
         }
-        // for every other position
-        else {
-            return (displacedNumber % dimension()) - 1;
+        boolean[] visited = new boolean[cells - 1];
+        int cycles = 0;
+        for (int i = 0; i < cells - 1; i++) {
+            if (visited[i]) continue;
+            cycles++;
+            for (int j = i; !visited[j]; j = order[j]) visited[j] = true;
         }
+        boolean oddPermutation = ((cells - 1 - cycles) & 1) == 1;
+        if (n % 2 == 1) return !oddPermutation;
+        boolean blankRowsFromGoalOdd = ((n - 1 - blankCell / n) & 1) == 1;
+        return oddPermutation == blankRowsFromGoalOdd;
     }
 
-    // a board that is obtained by exchanging any pair of tiles
-    public Board twin() {
-        int[][] twin = cloneArray(currentBoard);
-        int i;
-        if (missingTileX == 0) i = 1;
-        else i = 0;
-        int temp = twin[i][0];
-        twin[i][0] = twin[i][1];
-        twin[i][1] = temp;
-        return new Board(twin);
+    // true when key() identifies this board exactly
+    boolean isPacked() {
+        return wideTiles == null;
     }
 
-    // unit testing (ungraded)
-    public static void main(String[] args) {
+    // row-major cell index of the blank
+    int blankCell() {
+        return blankCell;
     }
 
-    private int[][] getCurrentBoard() {
-        return currentBoard;
+    // tile at the row-major cell index
+    int tileAt(int cell) {
+        if (wideTiles != null) return wideTiles[cell] & 0xFF;
+        return (int) (packedTiles >>> (cell << 2)) & 0xF;
     }
 
-    private void findMissingTile() {
-        if (missingTileX == -1) {
-            for (int i = 0; i < currentBoard.length; i++) {
-                for (int j = 0; j < currentBoard.length; j++) {
-                    if (currentBoard[i][j] == 0) {
-                        missingTileX = i;
-                        missingTileY = j;
-                    }
-                }
+    // cell holding tile; for packed boards a constant-time scan of all nibbles at once
+    int cellOf(int tile) {
+        if (tile == 0) return blankCell;
+        if (wideTiles != null) {
+            for (int cell = 0; cell < wideTiles.length; cell++) {
+                if ((wideTiles[cell] & 0xFF) == tile) return cell;
             }
+            return -1;
+        }
+        // nibbles equal to tile become zero; the lowest flagged zero nibble is exact
+        long x = packedTiles ^ (tile * 0x1111111111111111L);
+        long zeros = (x - 0x1111111111111111L) & ~x & 0x8888888888888888L;
+        return Long.numberOfTrailingZeros(zeros) >>> 2;
+    }
+
+    // private copy that a search engine may move in place without touching this board
+    Board mutableCopy() {
+        byte[] wide = wideTiles == null ? null : wideTiles.clone();
+        Board copy = new Board(n, packedTiles, wide, blankCell);
+        copy.cachedManhattanDistance = cachedManhattanDistance;
+        copy.cachedHammingDistance = cachedHammingDistance;
+        copy.cachedWalkingRows = cachedWalkingRows;
+        copy.cachedWalkingColumns = cachedWalkingColumns;
+        return copy;
+    }
+
+    // board of dimension n (at most 4) holding the packed word key, as returned by key()
+    static Board fromKey(int n, long key) {
+        Board board = new Board(n, key, null, 0);
+        board.load(key);
+        return board;
+    }
+
+    // board of dimension n (above 4) holding the row-major tiles, which it takes over
+    static Board fromTiles(int n, byte[] tiles) {
+        int blank = 0;
+        while (tiles[blank] != 0) blank++;
+        return new Board(n, 0L, tiles, blank);
+    }
+
+    // make this packed board hold the tiles of the packed word key, as returned by key(),
+    // so a search can walk stored states with one board. Cached distances are dropped
+    void load(long key) {
+        packedTiles = key;
+        // the blank is the lowest zero nibble; nibbles past the last cell are zero too
+        long zeros = (key - 0x1111111111111111L) & ~key & 0x8888888888888888L;
+        blankCell = Long.numberOfTrailingZeros(zeros) >>> 2;
+        cachedManhattanDistance = -1;
+        cachedHammingDistance = -1;
+        cachedWalkingRows = -1;
+        cachedWalkingColumns = -1;
+    }
+
+    // walking-distance reduced state on rows, or -1 if none has been cached
+    long walkingRows() {
+        return cachedWalkingRows;
+    }
+
+    // walking-distance reduced state on columns, or -1 if none has been cached
+    long walkingColumns() {
+        return cachedWalkingColumns;
+    }
+
+    // cache the walking-distance reduced states of this board, which slides keep current
+    void cacheWalking(long rows, long columns) {
+        cachedWalkingRows = rows;
+        cachedWalkingColumns = columns;
+    }
+
+    // cell the blank moves to in direction, which must be legal
+    int targetCell(int direction) {
+        switch (direction) {
+            case UP:
+                return blankCell - n;
+            case DOWN:
+                return blankCell + n;
+            case LEFT:
+                return blankCell - 1;
+            default:
+                return blankCell + 1;
         }
     }
 
-    private int[][] cloneArray(int[][] arrayToCopy) {
-        int[][] neighbor = new int[arrayToCopy.length][];
-        for (int i = 0; i < arrayToCopy.length; i++) {
-            neighbor[i] = arrayToCopy[i].clone();
+    // new board with the blank moved one step in direction, which must be legal
+    Board moved(int direction) {
+        Board next = mutableCopy();
+        next.slideInPlace(targetCell(direction));
+        return next;
+    }
+
+    // slide the tile at cell (next to the blank) into the blank of this very board,
+    // keeping the cached distances current
+    private void slideInPlace(int cell) {
+        int tile = tileAt(cell);
+        if (wideTiles != null) {
+            wideTiles[blankCell] = (byte) tile;
+            wideTiles[cell] = 0;
         }
-        return neighbor;
+        else {
+            // the blank nibble is zero, so one xor clears the tile's cell and sets the blank's
+            packedTiles ^= ((long) tile << (cell << 2)) | ((long) tile << (blankCell << 2));
+        }
+        if (cachedManhattanDistance != -1) {
+            cachedManhattanDistance += calcManhattanDistance(tile, blankCell / n, blankCell % n)
+                    - calcManhattanDistance(tile, cell / n, cell % n);
+        }
+        if (cachedHammingDistance != -1) {
+            if (tile == cell + 1) cachedHammingDistance++;
+            else if (tile == blankCell + 1) cachedHammingDistance--;
+        }
+        if (cachedWalkingRows != -1) {
+            cachedWalkingRows = WalkingDistanceHeuristic.slide(cachedWalkingRows, n, (tile - 1) / n,
+                                                               cell / n, blankCell / n);
+            cachedWalkingColumns = WalkingDistanceHeuristic.slide(cachedWalkingColumns, n,
+                                                                  (tile - 1) % n, cell % n,
+                                                                  blankCell % n);
+        }
+        blankCell = cell;
     }
 
-    private int calcManhattanDistance(int displacedNumber, int currentRow, int currentColumn) {
-        int goalRow;
-        int goalColumn;
+    // board obtained by exchanging the tiles at two cells, neither of them the blank
+    private Board swap(int a, int b) {
+        int tileA = tileAt(a);
+        int tileB = tileAt(b);
+        if (wideTiles != null) {
+            byte[] next = wideTiles.clone();
+            next[a] = (byte) tileB;
+            next[b] = (byte) tileA;
+            return new Board(n, 0L, next, blankCell);
+        }
+        long diff = tileA ^ tileB;
+        return new Board(n, packedTiles ^ (diff << (a << 2)) ^ (diff << (b << 2)), null, blankCell);
+    }
 
-        goalRow = findGoalRow(displacedNumber);
-        goalColumn = findGoalCol(displacedNumber);
+    private int calcManhattanDistance(int displacedNumber, int currentRow, int currentColumn) {
+        // tile t belongs at cell t - 1
+        int goalRow = (displacedNumber - 1) / n;
+        int goalColumn = (displacedNumber - 1) % n;
 
         int distanceFromGoalRow = Math.abs(currentRow - goalRow);
         int distanceFromGoalColumn = Math.abs(currentColumn - goalColumn);
@@ -0,0 +1,97 @@
+/* *****************************************************************************
+ *  Description: Open list for A* keyed by small integer priorities. Items are
+ *               kept in buckets indexed by f = g + h and then by h, so insert
+ *               is O(1) and delMin only walks forward over empty buckets; with
+ *               a consistent heuristic f never drops below the last f removed,
+ *               so that walk is amortized O(1) too. Within a bucket items come
+ *               out last in, first out, which favors the deepest, most recent
+ *               nodes among equal priorities.
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+class BucketQueue<Item> {
+    // byF[f][h] holds the items of priority (f, h); h <= f because g >= 0
+    private Bucket[][] byF = new Bucket[64][];
+    private int size = 0;
+    // no item has a priority below (minF, minH)
+    private int minF = 0;
+    private int minH = 0;
+
+    // add item with total estimate f and heuristic estimate h
+    void insert(Item item, int f, int h) {
+        if (h < 0 || h > f) throw new IllegalArgumentException("need 0 <= h <= f");
+        if (f >= byF.length) byF = Arrays.copyOf(byF, Math.max(2 * byF.length, f + 1));
+        if (byF[f] == null) byF[f] = new Bucket[f + 1];
+        if (byF[f][h] == null) byF[f][h] = new Bucket();
+        byF[f][h].push(item);
+        if (size == 0 || f < minF || (f == minF && h < minH)) {
+            minF = f;
+            minH = h;
+        }
+        size++;
+    }
+
+    // remove and return an item of smallest f, breaking ties by smallest h
+    @SuppressWarnings("unchecked")
+    Item delMin() {
+        if (size == 0) throw new NoSuchElementException("queue is empty");
+        while (true) {
+            Bucket[] byH = byF[minF];
+            if (byH != null) {
+                while (minH <= minF) {
+                    Bucket bucket = byH[minH];
+                    if (bucket != null && bucket.size > 0) {
+                        size--;
+                        return (Item) bucket.pop();
+                    }
+                    minH++;
+                }
+            }
+            minF++;
+            minH = 0;
+        }
+    }
+
+    // smallest f of any item, without removing it
+    int minF() {
+        if (size == 0) throw new NoSuchElementException("queue is empty");
+        while (true) {
+            Bucket[] byH = byF[minF];
+            if (byH != null) {
+                while (minH <= minF) {
+                    if (byH[minH] != null && byH[minH].size > 0) return minF;
+                    minH++;
+                }
+            }
+            minF++;
+            minH = 0;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // growable stack of items sharing one priority
+    private static class Bucket {
+        private Object[] items = new Object[16];
+        private int size = 0;
+
+        private void push(Object item) {
+            if (size == items.length) items = Arrays.copyOf(items, 2 * size);
+            items[size++] = item;
+        }
+
+        private Object pop() {
+            Object item = items[--size];
+            items[size] = null;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 CorpusChecker.java
+ *  Execution:    java-algs4 CorpusChecker [-e engine,...] [-m megabytes]
+ *                                         [-w walks] filename1.txt ...
+ *  Dependencies: Board.java Solver.java BatchWriter.java EightPuzzleTable.java
+ *                PatternDatabase.java ScrambleGenerator.java
+ *
+ *  Description: Regression check of the engines and heuristics against the
+ *               puzzle files, whose names carry their known answers:
+ *               puzzle4x4-36.txt and puzzle36.txt take 36 moves, and a file
+ *               named unsolvable takes -1.
+ *
+ *               It first checks the 3x3 table's indexing and the pattern
+ *               database's ranking on their own. Then each board is solved by
+ *               every engine that takes it (by default every engine, or those
+ *               listed with -e; the table only when it is built, external
+ *               search only up to 4x4). An engine fails a
+ *               board if its move count differs from the answer, or if its
+ *               solution is not a chain of legal moves from the board to the
+ *               goal. Along the first solution found, every heuristic that
+ *               supports the board must give 0 at the goal and no more than
+ *               the moves left anywhere along the way. Its incremental update
+ *               must match a full estimate, which for the pattern database
+ *               checks the sum over its patterns. Every heuristic but the
+ *               pattern database must also change by at most 1 per move.
+ *
+ *               ARA* at epsilon 3 is also run on 4x4 random walks of 200 moves
+ *               that once came back longer than the shortest solution while
+ *               claiming a bound of 1, and on -w more walks: wherever it claims
+ *               a bound of 1 its move count must match IDA*'s.
+ *
+ *               A board over the -m memory cap (by default 3/4 of the heap) is
+ *               reported and skipped. The exit status is 1 if anything failed:
+ *
+ *               % java-algs4 CorpusChecker puzzle3x3-*.txt puzzle4x4-0*.txt
+ *               table index: 362880 boards, 181440 solvable
+ *               pattern ranks: 3 patterns
+ *               anytime: 2 walks, 0 failed
+ *               ASTAR          45 boards  0 failed  0 skipped
+ *               IDA_STAR       45 boards  0 failed  0 skipped
+ *               ...
+ *               heuristics: 1668 moves checked, 0 failed
+ *               all checks passed
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class CorpusChecker {
+    // the answer at the end of a puzzle file name, e.g. 36 in puzzle4x4-36.txt
+    private static final Pattern ANSWER = Pattern.compile("(\\d+)\\.txt$");
+    private static final String UNSOLVABLE = "unsolvable";
+    // engines checked when -e is not given
+    private static final Solver.Engine[] DEFAULT_ENGINES = {
+            Solver.Engine.ASTAR,
+            Solver.Engine.IDA_STAR,
+            Solver.Engine.HDA_STAR,
+            Solver.Engine.BIDIRECTIONAL,
+            Solver.Engine.ARA_STAR,
+            Solver.Engine.TABLE,
+            Solver.Engine.EXTERNAL
+    };
+    // seed and index of random walks on which ARA* once claimed a bound of 1 for a
+    // longer solution; -w walks are taken from the seed after the last of these
+    private static final long[][] ANYTIME_WALKS = { { 0, 212 }, { 2, 189 } };
+    private static final int WALK_DIMENSION = 4;
+    private static final int WALK_LENGTH = 200;
+    private static final double WALK_SUBOPTIMALITY = 3.0;
+
+    private static int failures = 0;
+
+    private CorpusChecker() { }
+
+    public static void main(String[] args) {
+        Solver.Engine[] engines = DEFAULT_ENGINES;
+        long memoryLimit = Runtime.getRuntime().maxMemory() / 4 * 3;
+        int walks = 0;
+        int first = 0;
+        while (first + 1 < args.length && args[first].startsWith("-")) {
+            String flag = args[first];
+            String value = args[first + 1];
+            if (flag.equals("-e")) engines = parseEngines(value);
+            else if (flag.equals("-m")) memoryLimit = Long.parseLong(value) * 1024 * 1024;
+            else if (flag.equals("-w")) walks = Integer.parseInt(value);
+            else throw new IllegalArgumentException("unknown option: " + flag);
+            first += 2;
+        }
+
+        checkTableIndex();
+        checkPatternRanks();
+        checkAnytime(walks);
+
+        int[] boards = new int[engines.length];
+        int[] failed = new int[engines.length];
+        int[] skipped = new int[engines.length];
+        int[] heuristicMoves = new int[1];
+        int heuristicFailures = 0;
+        for (int f = first; f < args.length; f++) {
+            String filename = args[f];
+            int expected = answer(filename);
+            if (expected == Integer.MIN_VALUE) {
+                StdOut.println(filename + ": no known answer in the name, skipped");
+                continue;
+            }
+            Board initial = BatchWriter.readText(filename);
+            List<Board> path = null;
+            for (int e = 0; e < engines.length; e++) {
+                if (!takes(engines[e], initial)) continue;
+                boards[e]++;
+                SolverOptions options = new SolverOptions().withEngine(engines[e])
+                                                           .withMemoryLimit(memoryLimit);
+                Solver solver;
+                try {
+                    solver = new Solver(initial, options);
+                }
+                catch (SearchLimitException ex) {
+                    skipped[e]++;
+                    StdOut.println(filename + ": " + engines[e] + " memory limit exceeded");
+                    continue;
+                }
+                String problem = problem(initial, solver, expected);
+                if (problem != null) {
+                    failed[e]++;
+                    fail(filename + ": " + engines[e] + " " + problem);
+                }
+                else if (path == null && expected > 0) path = toList(solver.solution());
+            }
+            if (path != null) {
+                int before = failures;
+                checkHeuristics(filename, path, expected, heuristicMoves);
+                heuristicFailures += failures - before;
+            }
+        }
+
+        for (int e = 0; e < engines.length; e++) {
+            StdOut.printf("%-13s %4d boards %2d failed %2d skipped%n", engines[e], boards[e],
+                          failed[e], skipped[e]);
+        }
+        StdOut.printf("heuristics: %d moves checked, %d failed%n", heuristicMoves[0],
+                      heuristicFailures);
+        if (failures > 0) {
+            StdOut.println(failures + " checks failed");
+            System.exit(1);
+        }
+        StdOut.println("all checks passed");
+    }
+
+    // engines named in a comma-separated list, e.g. astar,ida-star
+    private static Solver.Engine[] parseEngines(String value) {
+        String[] names = value.split(",");
+        Solver.Engine[] engines = new Solver.Engine[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].toUpperCase(Locale.ROOT).replace('-', '_');
+            engines[i] = Solver.Engine.valueOf(name);
+        }
+        return engines;
+    }
+
+    // known answer of a puzzle file from its name, or Integer.MIN_VALUE if it has none
+    static int answer(String filename) {
+        if (filename.contains(UNSOLVABLE)) return -1;
+        Matcher matcher = ANSWER.matcher(filename);
+        if (!matcher.find()) return Integer.MIN_VALUE;
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    // can engine solve board at all?
+    private static boolean takes(Solver.Engine engine, Board board) {
+        if (engine == Solver.Engine.TABLE) {
+            return board.dimension() == EightPuzzleTable.DIMENSION
+                    && EightPuzzleTable.shared() != null;
+        }
+        if (engine == Solver.Engine.EXTERNAL) return board.isPacked();
+        return true;
+    }
+
+    // what is wrong with solver's answer for initial, or null if nothing
+    private static String problem(Board initial, Solver solver, int expected) {
+        if (solver.moves() != expected) {
+            return solver.moves() + " moves, expected " + expected;
+        }
+        if (expected < 0) {
+            return solver.solution() == null ? null : "a solution for an unsolvable board";
+        }
+        Iterator<Board> boards = solver.solution().iterator();
+        if (!boards.hasNext() || !boards.next().equals(initial)) {
+            return "solution does not start at the initial board";
+        }
+        Board previous = initial;
+        int steps = 0;
+        while (boards.hasNext()) {
+            Board next = boards.next();
+            if (!isMove(previous, next)) return "illegal move after " + steps + " moves";
+            previous = next;
+            steps++;
+        }
+        if (steps != expected) return "solution has " + steps + " moves, not " + expected;
+        if (!previous.isGoal()) return "solution does not end at the goal";
+        return null;
+    }
+
+    // does one slide of a tile into the blank turn a into b?
+    private static boolean isMove(Board a, Board b) {
+        int n = a.dimension();
+        if (b.dimension() != n) return false;
+        int from = b.blankCell();
+        int to = a.blankCell();
+        int distance = Math.abs(from / n - to / n) + Math.abs(from % n - to % n);
+        if (distance != 1 || a.tileAt(from) != b.tileAt(to)) return false;
+        for (int cell = 0; cell < n * n; cell++) {
+            if (cell != from && cell != to && a.tileAt(cell) != b.tileAt(cell)) return false;
+        }
+        return true;
+    }
+
+    // walk every heuristic that supports the boards along path, a shortest solution of
+    // expected moves, counting the moves checked in moves[0]
+    private static void checkHeuristics(String filename, List<Board> path, int expected,
+                                        int[] moves) {
+        int n = path.get(0).dimension();
+        List<Heuristic> heuristics = new ArrayList<>();
+        heuristics.add(new ManhattanHeuristic());
+        heuristics.add(new LinearConflictHeuristic());
+        heuristics.add(new WalkingDistanceHeuristic());
+        if (PatternDatabase.shared() != null) heuristics.add(PatternDatabase.shared());
+        for (Heuristic heuristic : heuristics) {
+            if (!heuristic.supports(n)) continue;
+            String label = filename + ": " + heuristic;
+            // the pattern database keeps each placement's best blank cell, so one move can
+            // change it by more than 1; it need only stay admissible
+            boolean consistent = !(heuristic instanceof PatternDatabase);
+            int estimate = heuristic.estimate(path.get(0));
+            if (estimate > expected) fail(label + " estimates " + estimate + " > " + expected);
+            for (int i = 1; i < path.size(); i++) {
+                Board before = path.get(i - 1);
+                Board after = path.get(i);
+                int from = after.blankCell();
+                int to = before.blankCell();
+                int updated = heuristic.update(after, estimate, after.tileAt(to), from, to);
+                int full = heuristic.estimate(after);
+                moves[0]++;
+                if (updated != full) {
+                    fail(label + " update gives " + updated + ", estimate " + full
+                                 + " at move " + i);
+                }
+                if (consistent && Math.abs(full - estimate) > 1) {
+                    fail(label + " jumps from " + estimate + " to " + full + " at move " + i);
+                }
+                if (full > expected - i) {
+                    fail(label + " estimates " + full + " with " + (expected - i) + " to go");
+                }
+                estimate = full;
+            }
+            if (estimate != 0) fail(label + " estimates " + estimate + " at the goal");
+        }
+    }
+
+    // ARA* on the known random walks and then on walks more from the next seed, against
+    // IDA* wherever ARA* claims its solution is optimal
+    private static void checkAnytime(int walks) {
+        int checked = 0;
+        int before = failures;
+        for (long[] walk : ANYTIME_WALKS) {
+            ScrambleGenerator generator = new ScrambleGenerator(walk[0]);
+            for (long i = 0; i < walk[1]; i++) generator.randomWalk(WALK_DIMENSION, WALK_LENGTH);
+            checkAnytime("seed " + walk[0] + " walk " + walk[1],
+                         generator.randomWalk(WALK_DIMENSION, WALK_LENGTH));
+            checked++;
+        }
+        ScrambleGenerator generator =
+                new ScrambleGenerator(ANYTIME_WALKS[ANYTIME_WALKS.length - 1][0] + 1);
+        for (int i = 0; i < walks; i++) {
+            checkAnytime("walk " + i, generator.randomWalk(WALK_DIMENSION, WALK_LENGTH));
+            checked++;
+        }
+        StdOut.printf("anytime: %d walks, %d failed%n", checked, failures - before);
+    }
+
+    private static void checkAnytime(String label, Board board) {
+        Solver anytime = new Solver(board, new SolverOptions()
+                .withEngine(Solver.Engine.ARA_STAR).withSuboptimality(WALK_SUBOPTIMALITY));
+        if (anytime.bound() != 1.0) return;
+        Solver exact = new Solver(board, new SolverOptions().withEngine(Solver.Engine.IDA_STAR));
+        if (anytime.moves() != exact.moves()) {
+            fail(label + ": ARA_STAR " + anytime.moves() + " moves with bound 1, IDA_STAR "
+                         + exact.moves());
+        }
+    }
+
+    // every permutation of the nine cells survives rank and unrank, and the solvable ones
+    // get distinct table indices covering the table
+    private static void checkTableIndex() {
+        int[] tiles = new int[EightPuzzleTable.CELLS];
+        boolean[] used = new boolean[EightPuzzleTable.SIZE];
+        int permutations = 0;
+        int solvable = 0;
+        int permutationCount = factorial(EightPuzzleTable.CELLS);
+        for (int rank = 0; rank < permutationCount; rank++) {
+            EightPuzzleTable.unrank(rank, tiles);
+            permutations++;
+            if (EightPuzzleTable.rank(tiles) != rank) {
+                fail("table rank " + rank + " does not survive unrank");
+                return;
+            }
+            int[][] grid = new int[EightPuzzleTable.DIMENSION][EightPuzzleTable.DIMENSION];
+            for (int cell = 0; cell < tiles.length; cell++) {
+                grid[cell / EightPuzzleTable.DIMENSION][cell % EightPuzzleTable.DIMENSION] =
+                        tiles[cell];
+            }
+            if (!new Board(grid).isSolvable()) continue;
+            solvable++;
+            int index = EightPuzzleTable.index(tiles);
+            if (index < 0 || index >= used.length || used[index]) {
+                fail("table index " + index + " out of range or shared, rank " + rank);
+                return;
+            }
+            used[index] = true;
+        }
+        if (solvable != EightPuzzleTable.SIZE) {
+            fail("table index covers " + solvable + " of " + EightPuzzleTable.SIZE + " boards");
+        }
+        StdOut.printf("table index: %d boards, %d solvable%n", permutations, solvable);
+    }
+
+    // every placement of each default pattern survives rank and unrank
+    private static void checkPatternRanks() {
+        for (int[] pattern : PatternDatabase.DEFAULT_PARTITION) {
+            int k = pattern.length;
+            int[] cells = new int[k];
+            for (int rank = 0; rank < PatternDatabase.tableSize(k); rank++) {
+                PatternDatabase.unrank(rank, k, cells);
+                if (PatternDatabase.rank(cells, k) != rank) {
+                    fail("pattern rank " + rank + " of " + k + " tiles does not survive unrank");
+                    return;
+                }
+            }
+        }
+        StdOut.printf("pattern ranks: %d patterns%n", PatternDatabase.DEFAULT_PARTITION.length);
+    }
+
+    private static int factorial(int k) {
+        int product = 1;
+        for (int i = 2; i <= k; i++) product *= i;
+        return product;
+    }
+
+    private static List<Board> toList(Iterable<Board> boards) {
+        List<Board> list = new ArrayList<>();
+        for (Board board : boards) list.add(board);
+        return list;
+    }
+
+    private static void fail(String message) {
+        failures++;
+        StdOut.println("FAIL " + message);
+    }
+}
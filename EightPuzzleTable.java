@@ -0,0 +1,167 @@
+/* *****************************************************************************
+ *  Description: Exact solution table for the 3x3 puzzle. Every one of the
+ *               181,440 solvable boards has one byte holding its fewest moves
+ *               to the goal (low 5 bits) and the direction of a blank move
+ *               that starts a shortest solution (next 2 bits), so a solution
+ *               is read off by following best moves with no search.
+ *
+ *               Boards are indexed by a perfect hash: the blank's cell times
+ *               8!/2, plus the Lehmer code of the eight tiles read in row-major
+ *               order, halved. The last two tiles only set the lowest Lehmer
+ *               digit, and with the blank in place swapping them flips the
+ *               parity, so exactly one of the two boards sharing a half code is
+ *               solvable and the solvable boards fill the table densely.
+ *
+ *               The table is written by EightPuzzleTableBuilder and mapped
+ *               read-only from the pattern database directory.
+ **************************************************************************** */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class EightPuzzleTable {
+    static final int DIMENSION = 3;
+    static final int CELLS = DIMENSION * DIMENSION;
+    // solvable boards per blank cell: 8! / 2
+    private static final int PER_BLANK_CELL = 20160;
+    // solvable boards: 9! / 2
+    static final int SIZE = CELLS * PER_BLANK_CELL;
+    // first bytes of the table file
+    static final int MAGIC = 0x54424C31; // "TBL1"
+    // magic, dimension and entry count, one int each
+    static final int HEADER_BYTES = 12;
+    static final int DISTANCE_MASK = 0x1F;
+    static final int MOVE_SHIFT = 5;
+    // FACTORIAL[k] = k!
+    private static final int[] FACTORIAL = { 1, 1, 2, 6, 24, 120, 720, 5040, 40320 };
+
+    private static EightPuzzleTable shared;
+    private static boolean sharedLoaded = false;
+
+    private final ByteBuffer table;
+
+    private EightPuzzleTable(ByteBuffer table) {
+        this.table = table;
+    }
+
+    // the table in the directory named by puzzle.pdb.dir, loaded once per JVM, or null if it
+    // has not been built
+    public static synchronized EightPuzzleTable shared() {
+        if (!sharedLoaded) {
+            sharedLoaded = true;
+            File file = fileIn(new File(System.getProperty(PatternDatabase.DIRECTORY_PROPERTY,
+                                                           PatternDatabase.DEFAULT_DIRECTORY)));
+            if (file.isFile()) shared = load(file);
+        }
+        return shared;
+    }
+
+    // map the table stored in file
+    public static EightPuzzleTable load(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() != HEADER_BYTES + SIZE || mapped.getInt(0) != MAGIC
+                    || mapped.getInt(4) != DIMENSION || mapped.getInt(8) != SIZE) {
+                throw new IllegalStateException("not a 3x3 solution table: " + file);
+            }
+            mapped.position(HEADER_BYTES);
+            return new EightPuzzleTable(mapped.slice());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not map " + file, e);
+        }
+    }
+
+    // file holding the table in directory
+    static File fileIn(File directory) {
+        return new File(directory, "table-" + DIMENSION + "x" + DIMENSION + ".bin");
+    }
+
+    // fewest moves to solve board, which must be a solvable 3x3 board
+    public int distance(Board board) {
+        return entry(board) & DISTANCE_MASK;
+    }
+
+    // direction of a blank move that starts a shortest solution of board, which must be a
+    // solvable 3x3 board other than the goal
+    public int bestMove(Board board) {
+        return entry(board) >>> MOVE_SHIFT & 0x3;
+    }
+
+    // directions of the blank's moves along a shortest solution of board
+    public byte[] solution(Board board) {
+        byte[] directions = new byte[distance(board)];
+        Board current = board.mutableCopy();
+        for (int i = 0; i < directions.length; i++) {
+            directions[i] = (byte) bestMove(current);
+            current.applyMove(directions[i]);
+        }
+        return directions;
+    }
+
+    private int entry(Board board) {
+        if (board.dimension() != DIMENSION) {
+            throw new IllegalArgumentException("the table only holds 3x3 boards");
+        }
+        int[] tiles = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) tiles[cell] = board.tileAt(cell);
+        return table.get(index(tiles)) & 0xFF;
+    }
+
+    // table index of the solvable board with the given row-major tiles
+    static int index(int[] tiles) {
+        int blank = 0;
+        int code = 0;
+        for (int i = 0, position = 0; i < CELLS; i++) {
+            if (tiles[i] == 0) {
+                blank = i;
+                continue;
+            }
+            int smaller = 0;
+            for (int j = i + 1; j < CELLS; j++) {
+                if (tiles[j] != 0 && tiles[j] < tiles[i]) smaller++;
+            }
+            code += smaller * FACTORIAL[CELLS - 2 - position];
+            position++;
+        }
+        return blank * PER_BLANK_CELL + code / 2;
+    }
+
+    // Lehmer code of all nine cells in row-major order, in [0, 9!)
+    static int rank(int[] tiles) {
+        int rank = 0;
+        for (int i = 0; i < CELLS - 1; i++) {
+            int smaller = 0;
+            for (int j = i + 1; j < CELLS; j++) {
+                if (tiles[j] < tiles[i]) smaller++;
+            }
+            rank += smaller * FACTORIAL[CELLS - 1 - i];
+        }
+        return rank;
+    }
+
+    // inverse of rank: write the tiles of the board with the given Lehmer code into tiles
+    static void unrank(int rank, int[] tiles) {
+        int used = 0;
+        for (int i = 0; i < CELLS; i++) {
+            int digit = rank / FACTORIAL[CELLS - 1 - i];
+            rank %= FACTORIAL[CELLS - 1 - i];
+            int tile = 0;
+            while (true) {
+                if ((used & (1 << tile)) == 0) {
+                    if (digit == 0) break;
+                    digit--;
+                }
+                tile++;
+            }
+            tiles[i] = tile;
+            used |= 1 << tile;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/* *****************************************************************************
+ *  Description: External-memory search for packed boards (up to 4x4), whose
+ *               frontier lives in files on disk rather than on the heap. It is
+ *               a breadth-first heuristic search: layer g holds every board
+ *               first reached in g moves whose g + h stays within a bound, and
+ *               each layer is one file of packed words in ascending order.
+ *
+ *               Layer g + 1 is built by streaming layer g and appending each
+ *               successor within the bound to an in-memory run, which doubles
+ *               as needed up to its size limit; a full run is sorted, stripped
+ *               of duplicates and written out. Duplicates are then removed with
+ *               a delay, by merging the sorted runs and dropping every word
+ *               that is also in layer g - 1: the puzzle's moves alternate the
+ *               blank's color on a checkerboard, and with a consistent
+ *               heuristic every board within the bound lands in the layer of
+ *               its true distance, so a successor of layer g that was seen
+ *               before can only be in layer g - 1. The pattern database is not
+ *               consistent, so a board may also turn up again a few layers
+ *               later and be expanded twice; that costs work, not optimality,
+ *               since every board on a shortest solution stays within the
+ *               bound. Memory is one run plus the I/O buffers, however large
+ *               the layers grow.
+ *
+ *               A merge reads at most a fan-in of runs at once: an eighth of the
+ *               memory limit over the size of a run's buffer, and never more
+ *               than 64, far below the limit on open files. More runs are
+ *               first merged a fan-in at a time into longer runs. The buffers
+ *               are allocated once per search and handed from one reader or
+ *               writer to the next.
+ *
+ *               The first bound is h of the initial board; a bound that empties
+ *               its layers before reaching the goal is raised by 2. Every
+ *               solution has the parity of the Manhattan distance, so with
+ *               Manhattan or linear conflict no bound in between can succeed.
+ *               The pattern database and walking distance do not keep that
+ *               parity, so a bound may overshoot the shortest length by one;
+ *               the goal is still found in the layer of its true distance, so
+ *               the solution stays optimal at the cost of a wider last pass.
+ *               A solution is read backwards from the goal, picking at each
+ *               layer a neighbor found in the layer below by binary search of
+ *               its file, so every layer of the current bound stays on disk
+ *               until the search ends.
+ **************************************************************************** */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+class ExternalSearch {
+    // buffer of the layer being scanned and the layer being written
+    private static final int LAYER_BUFFER_BYTES = 1 << 20;
+    // buffer of each run while runs are merged, so many runs fit in memory at once
+    private static final int RUN_BUFFER_BYTES = 1 << 18;
+    // boards per in-memory run when no memory limit is set: 16 MB
+    private static final int DEFAULT_RUN_LENGTH = 1 << 21;
+    private static final int MIN_RUN_LENGTH = 1 << 10;
+    // share of the memory limit given to the merge's run buffers
+    private static final int MERGE_SHARE = 8;
+    // runs merged at once, whatever the memory limit
+    private static final int MIN_FAN_IN = 2;
+    private static final int MAX_FAN_IN = 64;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final SolverStats stats;
+    private final File scratchDirectory;
+    private final int maxRunLength;
+    private final int fanIn;
+    private long[] run = new long[MIN_RUN_LENGTH];
+    // buffers of the layer being scanned and of the file being written
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(LAYER_BUFFER_BYTES);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(LAYER_BUFFER_BYTES);
+    // buffers of the runs being merged and, last, of the layer below; allocated as needed
+    private final ByteBuffer[] runBuffers;
+    private File directory;
+    private int files = 0;
+
+    // prepare a search from initial, a packed board, keeping its files in a fresh directory
+    // under scratchDirectory. Runs grow and merges widen until the search retains about
+    // memoryLimit bytes (0 for the default sizes)
+    ExternalSearch(Board initial, Heuristic heuristic, SolverStats stats, File scratchDirectory,
+                   long memoryLimit) {
+        if (!initial.isPacked()) {
+            throw new IllegalArgumentException("external search needs a board of at most 4x4");
+        }
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.stats = stats;
+        this.scratchDirectory = scratchDirectory;
+        int runLength = DEFAULT_RUN_LENGTH;
+        int width = MAX_FAN_IN;
+        if (memoryLimit > 0) {
+            long mergeBytes = memoryLimit / MERGE_SHARE;
+            // one buffer is the layer below's
+            width = (int) Math.max(MIN_FAN_IN, Math.min(mergeBytes / RUN_BUFFER_BYTES - 1,
+                                                       MAX_FAN_IN));
+            long runBytes = memoryLimit - 2 * LAYER_BUFFER_BYTES
+                    - (long) (width + 1) * RUN_BUFFER_BYTES;
+            runLength = (int) Math.max(MIN_RUN_LENGTH, Math.min(runBytes / Long.BYTES,
+                                                                Integer.MAX_VALUE - 8));
+        }
+        maxRunLength = runLength;
+        fanIn = width;
+        runBuffers = new ByteBuffer[fanIn + 1];
+    }
+
+    // directions of the blank's moves along a shortest solution; the initial board must be
+    // solvable
+    byte[] solve() {
+        try {
+            directory = Files.createTempDirectory(scratchDirectory.toPath(), "frontier-").toFile();
+            try {
+                for (int bound = heuristic.estimate(initial); ; bound += 2) {
+                    byte[] solution = search(bound);
+                    if (solution != null) return solution;
+                }
+            }
+            finally {
+                File[] left = directory.listFiles();
+                if (left != null) {
+                    for (File file : left) Files.deleteIfExists(file.toPath());
+                }
+                Files.deleteIfExists(directory.toPath());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("external search failed in " + scratchDirectory, e);
+        }
+    }
+
+    // build layers within bound until the goal turns up, or null if they run out first
+    private byte[] search(int bound) throws IOException {
+        List<File> layers = new ArrayList<>();
+        File first = newFile("layer");
+        try (LongWriter writer = new LongWriter(first, writeBuffer)) {
+            writer.write(initial.key());
+        }
+        layers.add(first);
+        stats.generated(1);
+        if (initial.isGoal()) return new byte[0];
+
+        try {
+            for (int depth = 0; ; depth++) {
+                List<File> runs = new ArrayList<>();
+                long goal = expand(layers.get(depth), depth, bound, runs);
+                if (goal != 0) {
+                    for (File file : runs) Files.delete(file.toPath());
+                    return solution(layers, goal);
+                }
+                File previous = depth > 0 ? layers.get(depth - 1) : null;
+                File next = newFile("layer");
+                long size = mergeAll(runs, previous, next);
+                stats.observe(size, (long) run.length * Long.BYTES + 2 * LAYER_BUFFER_BYTES
+                        + (long) allocatedRunBuffers() * RUN_BUFFER_BYTES);
+                layers.add(next);
+                if (size == 0) return null;
+            }
+        }
+        finally {
+            for (File layer : layers) Files.deleteIfExists(layer.toPath());
+        }
+    }
+
+    // stream the layer at depth, writing its successors within bound as sorted runs; the
+    // goal's word if one of them is the goal, else 0 (no packed board has an all-zero word)
+    private long expand(File layer, int depth, int bound, List<File> runs) throws IOException {
+        Board board = initial.mutableCopy();
+        int length = 0;
+        try (LongReader reader = new LongReader(layer, readBuffer)) {
+            while (reader.hasNext()) {
+                board.load(reader.next());
+                stats.expanded();
+                int estimate = heuristic.estimate(board);
+                int legal = board.legalMoves();
+                int blank = board.blankCell();
+                for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                    if ((legal & (1 << direction)) == 0) continue;
+                    int cell = board.targetCell(direction);
+                    int tile = board.tileAt(cell);
+                    board.applyMove(direction);
+                    int neighborEstimate = heuristic.update(board, estimate, tile, cell, blank);
+                    if (neighborEstimate == 0 && board.isGoal()) return board.key();
+                    if (depth + 1 + neighborEstimate <= bound) {
+                        if (length == run.length && run.length < maxRunLength) {
+                            run = Arrays.copyOf(run, (int) Math.min(2L * run.length,
+                                                                    maxRunLength));
+                        }
+                        else if (length == run.length) {
+                            runs.add(writeRun(length));
+                            length = 0;
+                        }
+                        run[length++] = board.key();
+                        stats.generated(1);
+                    }
+                    board.undoMove(direction);
+                }
+            }
+        }
+        if (length > 0) runs.add(writeRun(length));
+        return 0;
+    }
+
+    // sort the first length words of the run and write them out once each
+    private File writeRun(int length) throws IOException {
+        Arrays.sort(run, 0, length);
+        File file = newFile("run");
+        try (LongWriter writer = new LongWriter(file, writeBuffer)) {
+            for (int i = 0; i < length; i++) {
+                if (i > 0 && run[i] == run[i - 1]) stats.pruned();
+                else writer.write(run[i]);
+            }
+        }
+        return file;
+    }
+
+    // merge the sorted runs into layer as merge() does, first merging them a fan-in at a
+    // time into longer runs while there are too many to read at once; deletes the runs
+    private long mergeAll(List<File> runs, File previous, File layer) throws IOException {
+        List<File> pending = runs;
+        while (pending.size() > fanIn) {
+            List<File> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += fanIn) {
+                List<File> group = pending.subList(i, Math.min(i + fanIn, pending.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                File longer = newFile("run");
+                merge(group, null, longer);
+                for (File file : group) Files.delete(file.toPath());
+                merged.add(longer);
+            }
+            pending = merged;
+        }
+        long size = merge(pending, previous, layer);
+        for (File file : pending) Files.delete(file.toPath());
+        return size;
+    }
+
+    // merge at most a fan-in of sorted runs into layer, keeping one copy of each word and
+    // none that is in previous (if any); the number of words written
+    private long merge(List<File> runs, File previous, File layer) throws IOException {
+        PriorityQueue<LongReader> heads = new PriorityQueue<>(Math.max(runs.size(), 1),
+                (a, b) -> Long.compare(a.peek(), b.peek()));
+        LongReader seen = previous == null ? null : new LongReader(previous, runBuffer(fanIn));
+        try (LongWriter writer = new LongWriter(layer, writeBuffer)) {
+            for (int r = 0; r < runs.size(); r++) {
+                LongReader reader = new LongReader(runs.get(r), runBuffer(r));
+                if (reader.hasNext()) heads.add(reader);
+                else reader.close();
+            }
+            boolean any = false;
+            long last = 0;
+            while (!heads.isEmpty()) {
+                LongReader head = heads.poll();
+                long word = head.next();
+                if (head.hasNext()) heads.add(head);
+                else head.close();
+                if (any && word == last) {
+                    stats.pruned();
+                    continue;
+                }
+                any = true;
+                last = word;
+                while (seen != null && seen.hasNext() && seen.peek() < word) seen.next();
+                if (seen != null && seen.hasNext() && seen.peek() == word) {
+                    stats.pruned();
+                    continue;
+                }
+                writer.write(word);
+            }
+            return writer.count();
+        }
+        finally {
+            for (LongReader head : heads) head.close();
+            if (seen != null) seen.close();
+        }
+    }
+
+    // walk back from goal, found one move past the last layer, to the initial board
+    private byte[] solution(List<File> layers, long goal) throws IOException {
+        byte[] directions = new byte[layers.size()];
+        Board board = initial.mutableCopy();
+        board.load(goal);
+        for (int depth = layers.size() - 1; depth >= 0; depth--) {
+            int legal = board.legalMoves();
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                if ((legal & (1 << direction)) == 0) continue;
+                board.applyMove(direction);
+                if (contains(layers.get(depth), board.key())) {
+                    // the board one layer down reaches this one by the opposite move
+                    directions[depth] = (byte) Board.opposite(direction);
+                    break;
+                }
+                board.undoMove(direction);
+            }
+        }
+        return directions;
+    }
+
+    // is word in the sorted file? Binary search with one 8-byte read per probe
+    private static boolean contains(File file, long word) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(Long.BYTES);
+            long lo = 0;
+            long hi = channel.size() / Long.BYTES - 1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                probe.clear();
+                while (probe.hasRemaining()) {
+                    if (channel.read(probe, mid * Long.BYTES + probe.position()) < 0) {
+                        throw new IOException("unexpected end of " + file);
+                    }
+                }
+                long found = probe.getLong(0);
+                if (found < word) lo = mid + 1;
+                else if (found > word) hi = mid - 1;
+                else return true;
+            }
+            return false;
+        }
+    }
+
+    // the merge's buffer of run r, or of the layer below when r is the fan-in
+    private ByteBuffer runBuffer(int r) {
+        if (runBuffers[r] == null) runBuffers[r] = ByteBuffer.allocateDirect(RUN_BUFFER_BYTES);
+        return runBuffers[r];
+    }
+
+    private int allocatedRunBuffers() {
+        int count = 0;
+        for (ByteBuffer buffer : runBuffers) {
+            if (buffer != null) count++;
+        }
+        return count;
+    }
+
+    private File newFile(String kind) {
+        return new File(directory, kind + "-" + files++ + ".bin");
+    }
+
+    // sequential writer of words through a buffer it has to itself until closed
+    private static class LongWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long count = 0;
+
+        private LongWriter(File file, ByteBuffer buffer) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                       StandardOpenOption.TRUNCATE_EXISTING,
+                                       StandardOpenOption.WRITE);
+            this.buffer = buffer;
+            buffer.clear();
+        }
+
+        private void write(long word) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.putLong(word);
+            count++;
+        }
+
+        private long count() {
+            return count;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        public void close() throws IOException {
+            try {
+                flush();
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+
+    // sequential reader of words through a buffer it has to itself until closed
+    private static class LongReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean ended = false;
+
+        private LongReader(File file, ByteBuffer buffer) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.buffer = buffer;
+            buffer.clear();
+            buffer.flip();
+        }
+
+        private boolean hasNext() throws IOException {
+            if (buffer.remaining() >= Long.BYTES) return true;
+            if (ended) return false;
+            buffer.compact();
+            while (buffer.position() < Long.BYTES && !ended) {
+                if (channel.read(buffer) < 0) ended = true;
+            }
+            buffer.flip();
+            return buffer.remaining() >= Long.BYTES;
+        }
+
+        // next word, which hasNext() must have confirmed
+        private long peek() {
+            return buffer.getLong(buffer.position());
+        }
+
+        private long next() throws IOException {
+            if (!hasNext()) throw new IOException("read past the end of a layer");
+            return buffer.getLong();
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
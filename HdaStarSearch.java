@@ -0,0 +1,285 @@
+/* *****************************************************************************
+ *  Description: Hash-distributed A* (HDA*) for the slider puzzle. Every board
+ *               is owned by one worker thread, chosen by hashing its key. Each
+ *               worker keeps its own open list and closed set, so neither is
+ *               ever locked; a worker that generates a board it does not own
+ *               sends it to the owner, buffering nodes per owner and handing
+ *               over whole batches through a lock-free queue.
+ *
+ *               A goal popped by any worker becomes the incumbent if it is
+ *               shorter than the best so far. Workers keep expanding nodes with
+ *               f below the incumbent's length, and since the heuristic never
+ *               overestimates, the incumbent is optimal once no worker has such
+ *               a node left and no batch is in flight. That moment is detected
+ *               with a single counter of busy workers plus batches in flight:
+ *               a batch is counted before it is sent and a worker counts itself
+ *               busy again before the batch it picks up stops counting, so the
+ *               counter only reaches 0 when no work is left anywhere.
+ **************************************************************************** */
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+class HdaStarSearch {
+    // nodes bound for one owner travel together in batches of this many
+    private static final int BATCH_SIZE = 64;
+    // expansions between flushes of partly filled batches, so no owner waits long
+    private static final int FLUSH_INTERVAL = 256;
+    // how long an idle worker sleeps between looks at its inbox
+    private static final long IDLE_PARK_NANOS = 50000;
+    // how often the solving thread looks at the progress callback while the workers run
+    private static final long PROGRESS_POLL_MILLIS = 10;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final SolverStats stats;
+    private final Worker[] workers;
+    private final long bytesPerNode;
+    private final long memoryLimitPerWorker;
+    // busy workers plus batches sent but not yet picked up; 0 means the search is over
+    private final AtomicLong active = new AtomicLong();
+    // length of the best solution found so far
+    private volatile int bound = Integer.MAX_VALUE;
+    private Node best;
+    private volatile RuntimeException failure;
+
+    // prepare a search from initial on the given number of worker threads. Each worker may
+    // retain an equal share of memoryLimit (0 for no cap), estimating bytesPerNode for every
+    // node it generates
+    HdaStarSearch(Board initial, Heuristic heuristic, SolverStats stats, int threads,
+                  long memoryLimit, long bytesPerNode) {
+        if (threads < 1) throw new IllegalArgumentException("need at least one thread");
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.stats = stats;
+        this.bytesPerNode = bytesPerNode;
+        memoryLimitPerWorker = memoryLimit / threads;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) workers[i] = new Worker(i);
+    }
+
+    // a search node; its fields are never written after it is handed to another worker
+    private static final class Node {
+        private final Board board;
+        private final int moves;
+        private final int estimate;
+        private final Node previous;
+
+        private Node(Board board, int moves, int estimate, Node previous) {
+            this.board = board;
+            this.moves = moves;
+            this.estimate = estimate;
+            this.previous = previous;
+        }
+    }
+
+    // run the workers until an optimal solution is proven, and return its boards from the
+    // initial board to the goal. The board must be solvable. An exception from the progress
+    // callback stops the workers and is rethrown
+    Board[] solve() {
+        workers[ownerOf(initial)].accept(new Node(initial, 0, heuristic.estimate(initial), null));
+        active.set(workers.length);
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-star-" + i);
+            threads[i].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    thread.join(PROGRESS_POLL_MILLIS);
+                    if (failure == null) poll();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            failure = new IllegalStateException("search interrupted");
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+
+        // the root counts as generated, as in the other engines; the peaks are summed, since
+        // the workers hold their open lists and closed sets side by side
+        stats.generated(1);
+        long peakOpen = 0;
+        long retained = 0;
+        for (Worker worker : workers) {
+            stats.record(worker.expanded, worker.generated, worker.pruned);
+            stats.recordCpu(worker.cpuNanos);
+            peakOpen += worker.peakOpen;
+            retained += worker.retained;
+        }
+        stats.observe(peakOpen, retained);
+        if (failure != null) throw failure;
+
+        Board[] boards = new Board[best.moves + 1];
+        for (Node node = best; node != null; node = node.previous) boards[node.moves] = node.board;
+        return boards;
+    }
+
+    // call the progress callback, handing any exception it throws to the workers, which
+    // stop on seeing it
+    private void poll() {
+        try {
+            stats.poll();
+        }
+        catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    // worker that owns board; a different mix than the closed sets' so each worker's
+    // keys still spread over its whole table
+    private int ownerOf(Board board) {
+        long h = board.key() * 0xC2B2AE3D27D4EB4FL;
+        return (int) ((h >>> 33) % workers.length);
+    }
+
+    // make node the incumbent if it is the shortest solution so far
+    private synchronized void improve(Node node) {
+        if (node.moves < bound) {
+            best = node;
+            bound = node.moves;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int id;
+        private final BucketQueue<Node> open = new BucketQueue<Node>();
+        private final TranspositionTable closed = new TranspositionTable(initial);
+        private final ConcurrentLinkedQueue<Node[]> inbox = new ConcurrentLinkedQueue<Node[]>();
+        // nodes waiting to be sent to each owner
+        private final Node[][] outgoing;
+        private final int[] outgoingSize;
+        private long expanded = 0;
+        private long generated = 0;
+        private long pruned = 0;
+        private long peakOpen = 0;
+        private long retained = 0;
+        // CPU time of the worker's thread, -1 if unmeasured
+        private long cpuNanos = -1;
+
+        private Worker(int id) {
+            this.id = id;
+            outgoing = new Node[workers.length][BATCH_SIZE];
+            outgoingSize = new int[workers.length];
+        }
+
+        public void run() {
+            long start = SolverStats.threadCpuNanos();
+            try {
+                work();
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+            finally {
+                long end = SolverStats.threadCpuNanos();
+                if (start >= 0 && end >= 0) cpuNanos = end - start;
+            }
+        }
+
+        private void work() {
+            int sinceFlush = 0;
+            while (failure == null) {
+                Node[] batch;
+                while ((batch = inbox.poll()) != null) {
+                    active.decrementAndGet();
+                    acceptAll(batch);
+                }
+                if (!open.isEmpty() && open.minF() < bound) {
+                    expandNext();
+                    if (++sinceFlush == FLUSH_INTERVAL) {
+                        flush();
+                        sinceFlush = 0;
+                    }
+                    continue;
+                }
+
+                // nothing below the incumbent left here: send what is buffered and go idle
+                flush();
+                sinceFlush = 0;
+                active.decrementAndGet();
+                while ((batch = inbox.poll()) == null) {
+                    if (active.get() == 0 || failure != null) return;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                // busy again, and the batch no longer counts: the counter is unchanged
+                acceptAll(batch);
+            }
+        }
+
+        private void expandNext() {
+            Node node = open.delMin();
+            // superseded by a cheaper path since it was queued
+            if (closed.get(node.board) < node.moves) return;
+            if (node.estimate == 0 && node.board.isGoal()) {
+                improve(node);
+                return;
+            }
+            expanded++;
+            int blank = node.board.blankCell();
+            int previousBlank = node.previous == null ? -1 : node.previous.board.blankCell();
+            int legal = node.board.legalMoves();
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                if ((legal & (1 << direction)) == 0) continue;
+                // moving the blank back would only regenerate the parent
+                if (node.board.targetCell(direction) == previousBlank) continue;
+                Board b = node.board.moved(direction);
+                // the neighbor's blank is where the moved tile came from
+                int tile = b.tileAt(blank);
+                int estimate = heuristic.update(b, node.estimate, tile, b.blankCell(), blank);
+                Node child = new Node(b, node.moves + 1, estimate, node);
+                generated++;
+                int owner = ownerOf(b);
+                if (owner == id) accept(child);
+                else send(owner, child);
+            }
+
+            long bytes = generated * bytesPerNode + closed.footprintBytes();
+            if (bytes > retained) retained = bytes;
+            if (open.size() > peakOpen) peakOpen = open.size();
+            if (memoryLimitPerWorker > 0 && bytes > memoryLimitPerWorker) {
+                throw new SearchLimitException("HDA* worker " + id + " exceeded its memory limit of "
+                                                       + memoryLimitPerWorker + " bytes after "
+                                                       + generated + " nodes");
+            }
+        }
+
+        // queue node unless it cannot beat the incumbent or its board was reached as cheaply
+        private void accept(Node node) {
+            int f = node.moves + node.estimate;
+            if (f >= bound) return;
+            if (closed.offer(node.board, node.moves)) open.insert(node, f, node.estimate);
+            else pruned++;
+        }
+
+        private void acceptAll(Node[] batch) {
+            for (Node node : batch) {
+                if (node == null) break;
+                accept(node);
+            }
+        }
+
+        private void send(int owner, Node node) {
+            outgoing[owner][outgoingSize[owner]++] = node;
+            if (outgoingSize[owner] == BATCH_SIZE) sendBatch(owner);
+        }
+
+        // hand every partly filled batch to its owner
+        private void flush() {
+            for (int owner = 0; owner < workers.length; owner++) {
+                if (outgoingSize[owner] > 0) sendBatch(owner);
+            }
+        }
+
+        // a batch shorter than BATCH_SIZE ends at its first null
+        private void sendBatch(int owner) {
+            active.incrementAndGet();
+            workers[owner].inbox.offer(outgoing[owner]);
+            outgoing[owner] = new Node[BATCH_SIZE];
+            outgoingSize[owner] = 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/* *****************************************************************************
+ *  Description: Admissible estimate of the moves left to solve a board. Besides
+ *               a full evaluation, every heuristic can update its estimate for a
+ *               single tile move, which is how the search engines use it on
+ *               every node they generate.
+ **************************************************************************** */
+
+public interface Heuristic {
+
+    // admissible estimate of the moves needed to solve board
+    int estimate(Board board);
+
+    // estimate for board right after tile slid from cell from into the blank at cell to,
+    // given the estimate of the board before that move
+    int update(Board board, int estimate, int tile, int from, int to);
+
+    // can this heuristic evaluate boards of the given dimension?
+    boolean supports(int dimension);
+
+    // heuristic selected by name on the command line: manhattan, linear-conflict,
+    // walking-distance or pdb. Returns null for pdb if its tables have not been built
+    static Heuristic named(String name) {
+        switch (name) {
+            case "manhattan":
+                return new ManhattanHeuristic();
+            case "linear-conflict":
+                return new LinearConflictHeuristic();
+            case "walking-distance":
+                return new WalkingDistanceHeuristic();
+            case "pdb":
+                return PatternDatabase.shared();
+            default:
+                throw new IllegalArgumentException("unknown heuristic: " + name);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* *****************************************************************************
+ *  Description: Iterative-deepening A* (IDA*) for the slider puzzle. Each
+ *               iteration is a depth-first search bounded by g + h, run on a
+ *               single board that applies a move before recursing and undoes it
+ *               afterwards; h is updated from the parent's value for the one
+ *               tile that moved. The move that would undo the previous one is
+ *               never tried. Memory is linear in the solution depth: the
+ *               recursion plus one direction per move. Node counts go straight
+ *               into the Solver's SolverStats.
+ **************************************************************************** */
+
+import java.util.Arrays;
+
+class IdaStarSearch {
+    // approximate stack bytes of one level of the recursion
+    private static final int FRAME_BYTES = 96;
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final int rootEstimate;
+    private int threshold;
+    private int nextThreshold;
+    // direction of each move of the current depth-first path
+    private byte[] path = new byte[64];
+    private byte[] solution;
+    private final SolverStats stats;
+    private int deepest = 0;
+
+    // prepare a search from initial guided by heuristic, counting into stats; the caller's
+    // board is never modified
+    IdaStarSearch(Board initial, Heuristic heuristic, SolverStats stats) {
+        board = initial.mutableCopy();
+        this.heuristic = heuristic;
+        this.stats = stats;
+        stats.generated(1);
+        rootEstimate = heuristic.estimate(initial);
+        threshold = rootEstimate;
+    }
+
+    // run one depth-first iteration at the current threshold, then raise the threshold to
+    // the smallest f-value that exceeded it. Returns true once the goal has been found
+    boolean iterate() {
+        if (solution != null) return true;
+        nextThreshold = Integer.MAX_VALUE;
+        boolean found = search(0, rootEstimate, -1);
+        stats.observe(0, (long) deepest * FRAME_BYTES + path.length);
+        if (found) return true;
+        threshold = nextThreshold;
+        return false;
+    }
+
+    // direction of each move of the solution, or null if not found yet
+    byte[] solution() {
+        return solution;
+    }
+
+    // depth-first search below the current board, reached in g moves with estimate h.
+    // previousMove is the direction of the last move (-1 at the root); its opposite is skipped
+    private boolean search(int g, int h, int previousMove) {
+        int f = g + h;
+        if (f > threshold) {
+            if (f < nextThreshold) nextThreshold = f;
+            return false;
+        }
+        if (h == 0 && board.isGoal()) {
+            solution = Arrays.copyOf(path, g);
+            return true;
+        }
+        stats.expanded();
+        if (g > deepest) deepest = g;
+        int legal = board.legalMoves();
+        if (previousMove >= 0) legal &= ~(1 << Board.opposite(previousMove));
+        stats.generated(Integer.bitCount(legal));
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legal & (1 << direction)) != 0 && tryMove(direction, g, h)) return true;
+        }
+        return false;
+    }
+
+    // apply the move, search below it, and undo it
+    private boolean tryMove(int direction, int g, int h) {
+        int blank = board.blankCell();
+        int cell = board.targetCell(direction);
+        int tile = board.tileAt(cell);
+        board.applyMove(direction);
+        int childH = heuristic.update(board, h, tile, cell, blank);
+        if (g == path.length) path = Arrays.copyOf(path, 2 * g);
+        path[g] = (byte) direction;
+        if (search(g + 1, childH, direction)) return true;
+        board.undoMove(direction);
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+/* *****************************************************************************
+ *  Description: BucketQueue for int items, such as NodePool indices. Buckets
+ *               are growable int arrays, so neither insert nor delMin boxes or
+ *               allocates once the buckets have grown to their working size.
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+class IntBucketQueue {
+    // byF[f][h] holds the items of priority (f, h); h <= f because g >= 0
+    private Bucket[][] byF = new Bucket[64][];
+    private int size = 0;
+    // no item has a priority below (minF, minH)
+    private int minF = 0;
+    private int minH = 0;
+    // slots allocated across all buckets, for footprint estimates
+    private long capacity = 0;
+
+    // add item with total estimate f and heuristic estimate h
+    void insert(int item, int f, int h) {
+        if (h < 0 || h > f) throw new IllegalArgumentException("need 0 <= h <= f");
+        if (f >= byF.length) byF = Arrays.copyOf(byF, Math.max(2 * byF.length, f + 1));
+        if (byF[f] == null) byF[f] = new Bucket[f + 1];
+        if (byF[f][h] == null) {
+            byF[f][h] = new Bucket();
+            capacity += Bucket.INITIAL_CAPACITY;
+        }
+        capacity += byF[f][h].push(item);
+        if (size == 0 || f < minF || (f == minF && h < minH)) {
+            minF = f;
+            minH = h;
+        }
+        size++;
+    }
+
+    // remove and return an item of smallest f, breaking ties by smallest h
+    int delMin() {
+        if (size == 0) throw new NoSuchElementException("queue is empty");
+        while (true) {
+            Bucket[] byH = byF[minF];
+            if (byH != null) {
+                while (minH <= minF) {
+                    Bucket bucket = byH[minH];
+                    if (bucket != null && bucket.size > 0) {
+                        size--;
+                        return bucket.items[--bucket.size];
+                    }
+                    minH++;
+                }
+            }
+            minF++;
+            minH = 0;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // bytes held by the buckets' arrays
+    long footprintBytes() {
+        return capacity * Integer.BYTES;
+    }
+
+    // growable stack of items sharing one priority
+    private static class Bucket {
+        private static final int INITIAL_CAPACITY = 16;
+        private int[] items = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        // push item and return the slots added to the bucket
+        private int push(int item) {
+            int added = 0;
+            if (size == items.length) {
+                added = size;
+                items = Arrays.copyOf(items, 2 * size);
+            }
+            items[size++] = item;
+            return added;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/* *****************************************************************************
+ *  Description: Minimal parser for one JSON object per line, as read by
+ *               SolverDaemon. Objects become maps in key order, arrays lists,
+ *               whole numbers Longs, other numbers Doubles, and true, false
+ *               and null their Java counterparts. Enough JSON for requests;
+ *               it is not a general-purpose library.
+ **************************************************************************** */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class JsonLine {
+    private final String text;
+    private int position = 0;
+
+    private JsonLine(String text) {
+        this.text = text;
+    }
+
+    // the object on line; IllegalArgumentException if line holds anything else
+    static Map<String, Object> parseObject(String line) {
+        JsonLine parser = new JsonLine(line);
+        parser.skipSpace();
+        if (parser.peek() != '{') throw parser.error("expected an object");
+        Map<String, Object> object = parser.object();
+        parser.skipSpace();
+        if (parser.position < line.length()) throw parser.error("trailing characters");
+        return object;
+    }
+
+    private Object value() {
+        skipSpace();
+        char c = peek();
+        if (c == '{') return object();
+        if (c == '[') return array();
+        if (c == '"') return string();
+        if (c == '-' || (c >= '0' && c <= '9')) return number();
+        if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        }
+        if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        }
+        if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        throw error("unexpected character");
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipSpace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("expected a key");
+            String key = string();
+            skipSpace();
+            expect(':');
+            object.put(key, value());
+            skipSpace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipSpace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipSpace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String string() {
+        StringBuilder string = new StringBuilder();
+        position++;
+        while (true) {
+            char c = next();
+            if (c == '"') return string.toString();
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'b':
+                    string.append('\b');
+                    break;
+                case 'f':
+                    string.append('\f');
+                    break;
+                case 'n':
+                    string.append('\n');
+                    break;
+                case 'r':
+                    string.append('\r');
+                    break;
+                case 't':
+                    string.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) throw error("bad escape");
+                    string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    string.append(escaped);
+            }
+        }
+    }
+
+    private Object number() {
+        int start = position;
+        if (peek() == '-') position++;
+        boolean whole = true;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') whole = false;
+            else if (c < '0' || c > '9') break;
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            if (whole) return Long.parseLong(number);
+            return Double.parseDouble(number);
+        }
+        catch (NumberFormatException e) {
+            throw error("bad number");
+        }
+    }
+
+    private void skipSpace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= text.length()) throw error("unexpected end of line");
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) throw error("expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at column " + (position + 1));
+    }
+}
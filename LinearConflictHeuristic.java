@@ -0,0 +1,78 @@
+/* *****************************************************************************
+ *  Description: Manhattan distance plus linear conflicts. Tiles that sit in their
+ *               goal row but in reverse order must leave the row to pass each
+ *               other, which Manhattan does not count. For every row the fewest
+ *               tiles that have to step aside is the number of tiles in their
+ *               goal row minus the longest run of them already in order; each
+ *               such tile costs two extra moves. Columns are handled the same
+ *               way, and the row and column terms add up since one counts only
+ *               vertical moves and the other only horizontal ones.
+ *
+ *               A move changes the conflicts of at most two lines: a vertical
+ *               move changes the rows the tile leaves and enters, a horizontal
+ *               move the columns, so update() rescans those two lines only.
+ **************************************************************************** */
+
+public class LinearConflictHeuristic implements Heuristic {
+
+    public int estimate(Board board) {
+        int n = board.dimension();
+        int extra = 0;
+        for (int line = 0; line < n; line++) {
+            extra += tilesToMoveAside(board, line, true, 0, -1, -1)
+                    + tilesToMoveAside(board, line, false, 0, -1, -1);
+        }
+        return board.manhattan() + 2 * extra;
+    }
+
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int n = board.dimension();
+        int manhattanDelta = ManhattanHeuristic.distance(n, tile, to)
+                - ManhattanHeuristic.distance(n, tile, from);
+        // a vertical move reshuffles rows, a horizontal one columns
+        boolean rows = from / n != to / n;
+        int lineFrom = rows ? from / n : from % n;
+        int lineTo = rows ? to / n : to % n;
+        int before = tilesToMoveAside(board, lineFrom, rows, tile, from, to)
+                + tilesToMoveAside(board, lineTo, rows, tile, from, to);
+        int after = tilesToMoveAside(board, lineFrom, rows, 0, -1, -1)
+                + tilesToMoveAside(board, lineTo, rows, 0, -1, -1);
+        return estimate + manhattanDelta + 2 * (after - before);
+    }
+
+    public boolean supports(int dimension) {
+        return true;
+    }
+
+    public String toString() {
+        return "linear-conflict";
+    }
+
+    // fewest tiles of a row (or column) that must leave it so that the tiles in their
+    // goal line are in goal order. With from >= 0 the line is read as it was before
+    // movedTile slid from cell from to cell to
+    private static int tilesToMoveAside(Board board, int line, boolean row, int movedTile,
+                                        int from, int to) {
+        int n = board.dimension();
+        int tilesInGoalLine = 0;
+        // longest increasing run by patience sorting; goal positions along a line are
+        // distinct, so the pile tops fit in a bit set
+        int pileTops = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = row ? line * n + i : i * n + line;
+            int tile;
+            if (cell == from) tile = movedTile;
+            else if (cell == to) tile = 0;
+            else tile = board.tileAt(cell);
+            if (tile == 0) continue;
+            int goal = tile - 1;
+            if ((row ? goal / n : goal % n) != line) continue;
+            int position = row ? goal % n : goal / n;
+            tilesInGoalLine++;
+            int higher = pileTops & (-1 << position);
+            if (higher != 0) pileTops &= ~(higher & -higher);
+            pileTops |= 1 << position;
+        }
+        return tilesInGoalLine - Integer.bitCount(pileTops);
+    }
+}
@@ -0,0 +1,181 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 LoadTest.java
+ *  Execution:    java-algs4 LoadTest [-s seed] [-n dimension] [-j concurrency]
+ *                                    [-r rate] [-c count] [-e engine] band ...
+ *  Dependencies: ScrambleGenerator.java Solver.java
+ *
+ *  Description: Load-test driver for Solver. Each band is a difficulty: a
+ *               number is an exact optimal depth and w followed by a number a
+ *               random-walk length (see ScrambleGenerator). For each band,
+ *               -c boards are generated from the seed before the clock starts,
+ *               then solved on a pool of -j threads.
+ *
+ *               With -r, boards arrive at that many per second whether or not
+ *               earlier ones are done, and a board's latency counts from its
+ *               scheduled arrival, so time spent queued behind slow solves is
+ *               not hidden. Without -r, all boards are queued at once and
+ *               latency is the solve alone. Each solve may retain 3/4 of the
+ *               heap split across the threads; a board that needs more counts
+ *               as failed.
+ *
+ *               Per band it reports throughput, latency percentiles and the
+ *               heap high-water mark: the sum of the peak usage of every heap
+ *               memory pool, reset after a garbage collection at the start of
+ *               the band.
+ *
+ *               % java-algs4 LoadTest -n 4 -j 2 -c 50 20 30 40 w200
+ *               band   boards failed moves  secs  boards/s   p50 ms   p90 ms   p99 ms   max ms  heap MB
+ *               20         50      0  20.0  0.04    1396.0      0.1      1.9      7.1      7.1      2.3
+ *               30         50      0  30.0  0.02    3056.0      0.1      1.1      7.2      7.2      1.9
+ *               40         50      0  40.0  0.24     212.7      3.4     17.8     92.2     92.2      2.4
+ *               w200       50      0  50.7  4.52      11.1     51.5    354.1   1712.6   1712.6      1.9
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LoadTest {
+    // arrival time of a board queued with all the others at once
+    private static final long UNSCHEDULED = Long.MIN_VALUE;
+
+    private LoadTest() { }
+
+    // outcome of one solve: its latency in milliseconds and moves, or -1 moves if it failed
+    private static class Outcome {
+        private final double millis;
+        private final int moves;
+
+        private Outcome(double millis, int moves) {
+            this.millis = millis;
+            this.moves = moves;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long seed = 1;
+        int n = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 0;
+        int count = 100;
+        Solver.Engine engine = null;
+        int first = 0;
+        while (first + 1 < args.length && args[first].startsWith("-")) {
+            String flag = args[first];
+            String value = args[first + 1];
+            if (flag.equals("-s")) seed = Long.parseLong(value);
+            else if (flag.equals("-n")) n = Integer.parseInt(value);
+            else if (flag.equals("-j")) threads = Integer.parseInt(value);
+            else if (flag.equals("-r")) rate = Double.parseDouble(value);
+            else if (flag.equals("-c")) count = Integer.parseInt(value);
+            else if (flag.equals("-e")) {
+                engine = Solver.Engine.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+            }
+            else throw new IllegalArgumentException("unknown option: " + flag);
+            first += 2;
+        }
+        long memoryLimit = Runtime.getRuntime().maxMemory() / 4 * 3 / threads;
+        SolverOptions options = new SolverOptions().withEngine(engine).withMemoryLimit(memoryLimit);
+
+        StdOut.printf("%-6s %6s %6s %5s %5s %9s %8s %8s %8s %8s %8s%n", "band", "boards", "failed",
+                      "moves", "secs", "boards/s", "p50 ms", "p90 ms", "p99 ms", "max ms",
+                      "heap MB");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int band = first; band < args.length; band++) {
+                // every band has its own stream of boards, whatever bands come before it
+                ScrambleGenerator generator = new ScrambleGenerator(seed + band - first);
+                boolean walk = args[band].startsWith("w");
+                int difficulty = Integer.parseInt(walk ? args[band].substring(1) : args[band]);
+                Board[] boards = new Board[count];
+                for (int i = 0; i < count; i++) {
+                    boards[i] = walk ? generator.randomWalk(n, difficulty)
+                                     : generator.atDepth(n, difficulty);
+                }
+                run(args[band], boards, pool, options, rate);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // solve boards on pool, arriving at rate per second (0 for all at once), and print the
+    // band's line
+    private static void run(String band, Board[] boards, ExecutorService pool,
+                            final SolverOptions options, double rate)
+            throws InterruptedException {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+                heapPools.add(memoryPool);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Future<Outcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < boards.length; i++) {
+            // open loop: each board arrives on schedule, even when the pool is behind
+            final long arrival = rate > 0 ? start + (long) (i * 1e9 / rate) : UNSCHEDULED;
+            if (arrival != UNSCHEDULED) {
+                long wait = arrival - System.nanoTime();
+                if (wait > 0) Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+            final Board board = boards[i];
+            outcomes.add(pool.submit(() -> solve(board, options, arrival)));
+        }
+
+        double[] latencies = new double[boards.length];
+        long moves = 0;
+        int failed = 0;
+        try {
+            for (int i = 0; i < outcomes.size(); i++) {
+                Outcome outcome = outcomes.get(i).get();
+                latencies[i] = outcome.millis;
+                if (outcome.moves < 0) failed++;
+                else moves += outcome.moves;
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("solver failed", e.getCause());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean memoryPool : heapPools) {
+            peakHeap += memoryPool.getPeakUsage().getUsed();
+        }
+        Arrays.sort(latencies);
+        int solved = boards.length - failed;
+        StdOut.printf("%-6s %6d %6d %5.1f %5.2f %9.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", band,
+                      boards.length, failed, solved == 0 ? 0.0 : (double) moves / solved, seconds,
+                      boards.length / seconds, SolverStats.percentile(latencies, 50),
+                      SolverStats.percentile(latencies, 90), SolverStats.percentile(latencies, 99),
+                      SolverStats.percentile(latencies, 100), peakHeap / (1024.0 * 1024.0));
+    }
+
+    // solve board, timing from its scheduled arrival if it has one, else from now
+    private static Outcome solve(Board board, SolverOptions options, long arrival) {
+        long start = arrival != UNSCHEDULED ? arrival : System.nanoTime();
+        int moves;
+        try {
+            moves = new Solver(board, options).moves();
+        }
+        catch (SearchLimitException e) {
+            moves = -1;
+        }
+        return new Outcome((System.nanoTime() - start) / 1e6, moves);
+    }
+}
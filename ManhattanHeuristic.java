@@ -0,0 +1,30 @@
+/* *****************************************************************************
+ *  Description: Sum of the Manhattan distances of all tiles from their goal
+ *               cells. A move changes only the moved tile's distance, by one.
+ **************************************************************************** */
+
+public class ManhattanHeuristic implements Heuristic {
+
+    public int estimate(Board board) {
+        return board.manhattan();
+    }
+
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int n = board.dimension();
+        return estimate - distance(n, tile, from) + distance(n, tile, to);
+    }
+
+    public boolean supports(int dimension) {
+        return true;
+    }
+
+    public String toString() {
+        return "manhattan";
+    }
+
+    // Manhattan distance of tile from its goal cell when it sits at cell
+    static int distance(int n, int tile, int cell) {
+        int goal = tile - 1;
+        return Math.abs(cell / n - goal / n) + Math.abs(cell % n - goal % n);
+    }
+}
@@ -0,0 +1,116 @@
+/* *****************************************************************************
+ *  Description: Search nodes of the A* engine stored as parallel primitive
+ *               arrays and addressed by int index, so the search allocates no
+ *               object per node. A node is its board (the packed word for boards
+ *               up to 4x4, a Board reference beyond), its moves from the root,
+ *               its heuristic estimate, the index of the node it was reached
+ *               from and the direction of that last move. Solutions are rebuilt
+ *               by following parent indices and replaying the moves.
+ *
+ *               Footprint: 8 + 2 + 2 + 4 + 1 = 17 bytes per packed node, against
+ *               about 80 for a SearchNode with its Board. The arrays double when
+ *               full.
+ **************************************************************************** */
+
+import java.util.Arrays;
+
+class NodePool {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    // bytes of one packed node: state, moves, estimate, parent and move
+    private static final int PACKED_NODE_BYTES = Long.BYTES + Short.BYTES + Short.BYTES
+            + Integer.BYTES + Byte.BYTES;
+    // a wide node keeps a (compressed) Board reference instead of the packed word
+    private static final int WIDE_NODE_BYTES = PACKED_NODE_BYTES - Long.BYTES + 4;
+    // most moves or estimate a node can hold in a short
+    private static final int MAX_VALUE = Short.MAX_VALUE;
+
+    private final boolean packed;
+    private long[] states;
+    private Board[] boards;
+    private short[] moves;
+    private short[] estimates;
+    private int[] parents;
+    private byte[] lastMoves;
+    private int size = 0;
+
+    // create an empty pool for boards of the same shape as the given board
+    NodePool(Board shape) {
+        packed = shape.isPacked();
+        int capacity = INITIAL_CAPACITY;
+        if (packed) states = new long[capacity];
+        else boards = new Board[capacity];
+        moves = new short[capacity];
+        estimates = new short[capacity];
+        parents = new int[capacity];
+        lastMoves = new byte[capacity];
+    }
+
+    // add a node for board, reached from node parent (-1 for the root) by moving the blank
+    // in direction (-1 for the root), and return its index. A packed board is copied into
+    // the pool, so a caller may go on moving it; a wide board must not change afterwards
+    int add(Board board, int movesToReach, int estimate, int parent, int direction) {
+        if (movesToReach > MAX_VALUE || estimate > MAX_VALUE) {
+            throw new IllegalArgumentException("node values exceed " + MAX_VALUE);
+        }
+        if (size == moves.length) grow();
+        if (packed) states[size] = board.key();
+        else boards[size] = board;
+        moves[size] = (short) movesToReach;
+        estimates[size] = (short) estimate;
+        parents[size] = parent;
+        lastMoves[size] = (byte) direction;
+        return size++;
+    }
+
+    // packed word of node's board; only for pools of packed boards
+    long state(int node) {
+        return states[node];
+    }
+
+    // board of node; only for pools of wide boards
+    Board board(int node) {
+        return boards[node];
+    }
+
+    int moves(int node) {
+        return moves[node];
+    }
+
+    int estimate(int node) {
+        return estimates[node];
+    }
+
+    // direction of the move that reached node, -1 for the root
+    int lastMove(int node) {
+        return lastMoves[node];
+    }
+
+    // directions of the blank's moves from the root to node
+    byte[] path(int node) {
+        byte[] directions = new byte[moves[node]];
+        for (int i = directions.length - 1; i >= 0; i--) {
+            directions[i] = lastMoves[node];
+            node = parents[node];
+        }
+        return directions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // bytes held by the pool's arrays (excluding the boards of a wide pool)
+    long footprintBytes() {
+        return (long) moves.length * (packed ? PACKED_NODE_BYTES : WIDE_NODE_BYTES);
+    }
+
+    private void grow() {
+        int capacity = 2 * moves.length;
+        if (packed) states = Arrays.copyOf(states, capacity);
+        else boards = Arrays.copyOf(boards, capacity);
+        moves = Arrays.copyOf(moves, capacity);
+        estimates = Arrays.copyOf(estimates, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        lastMoves = Arrays.copyOf(lastMoves, capacity);
+    }
+}
@@ -0,0 +1,206 @@
+/* *****************************************************************************
+ *  Description: Additive disjoint pattern database for the 4x4 puzzle. The 15
+ *               tiles are split into disjoint patterns (6-6-3 by default); for
+ *               every placement of a pattern's tiles a byte table holds the
+ *               fewest moves of those tiles needed to bring them home, counting
+ *               only moves of the pattern's own tiles. Since no move is counted
+ *               by two patterns, the sum over all patterns never overestimates
+ *               and stays admissible. It is not consistent: each entry is the
+ *               best over all blank cells, so one move can change it by more
+ *               than 1 (up to 5 on the sample puzzles). The engines rely on
+ *               admissibility only; A* and HDA* reopen a board found again by
+ *               a shorter path.
+ *
+ *               A move changes the cost of the moved tile's pattern only, so
+ *               update() looks up that one table twice.
+ *
+ *               Tables are written by PatternDatabaseBuilder and mapped read-only
+ *               from disk through FileChannel, so loading does no parsing and
+ *               JVMs on the same machine share the pages.
+ **************************************************************************** */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class PatternDatabase implements Heuristic {
+    // system property naming the directory that holds the tables
+    public static final String DIRECTORY_PROPERTY = "puzzle.pdb.dir";
+    // directory used when the property is not set
+    public static final String DEFAULT_DIRECTORY = "pdb";
+    // the 6-6-3 partition of the 15-puzzle tiles
+    static final int[][] DEFAULT_PARTITION = {
+            { 1, 5, 6, 9, 10, 13 },
+            { 7, 8, 11, 12, 14, 15 },
+            { 2, 3, 4 }
+    };
+    static final int DIMENSION = 4;
+    // first bytes of every table file
+    static final int MAGIC = 0x50444231; // "PDB1"
+
+    private static PatternDatabase shared;
+    private static boolean sharedLoaded = false;
+
+    private final int[][] patterns;
+    private final ByteBuffer[] tables;
+    // patternOf[tile] = index of the pattern holding tile
+    private final int[] patternOf;
+
+    private PatternDatabase(int[][] patterns, ByteBuffer[] tables) {
+        this.patterns = patterns;
+        this.tables = tables;
+        patternOf = new int[DIMENSION * DIMENSION];
+        for (int p = 0; p < patterns.length; p++) {
+            for (int tile : patterns[p]) patternOf[tile] = p;
+        }
+    }
+
+    // the default tables from the directory named by puzzle.pdb.dir, loaded once per JVM,
+    // or null if they have not been built
+    public static synchronized PatternDatabase shared() {
+        if (!sharedLoaded) {
+            sharedLoaded = true;
+            File directory = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+            if (exists(directory, DEFAULT_PARTITION)) shared = load(directory, DEFAULT_PARTITION);
+        }
+        return shared;
+    }
+
+    // map the tables of the given partition from directory
+    public static PatternDatabase load(File directory, int[][] partition) {
+        ByteBuffer[] tables = new ByteBuffer[partition.length];
+        for (int p = 0; p < partition.length; p++) {
+            tables[p] = map(fileFor(directory, partition[p]), partition[p]);
+        }
+        return new PatternDatabase(partition, tables);
+    }
+
+    // true if every table of the partition is present in directory
+    static boolean exists(File directory, int[][] partition) {
+        for (int[] pattern : partition) {
+            if (!fileFor(directory, pattern).isFile()) return false;
+        }
+        return true;
+    }
+
+    // file holding the table of one pattern, e.g. pdb-4x4-2-3-4.bin
+    static File fileFor(File directory, int[] pattern) {
+        StringBuilder name = new StringBuilder("pdb-" + DIMENSION + "x" + DIMENSION);
+        for (int tile : pattern) name.append('-').append(tile);
+        return new File(directory, name.append(".bin").toString());
+    }
+
+    // number of entries in the table of a pattern with k tiles: 16! / (16 - k)!
+    static int tableSize(int k) {
+        int size = 1;
+        for (int i = 0; i < k; i++) size *= DIMENSION * DIMENSION - i;
+        return size;
+    }
+
+    // rank of a placement of k distinct cells, read in order from cells. Each cell is
+    // a digit counting only the cells not already used, so ranks are dense in
+    // [0, tableSize(k))
+    static int rank(int[] cells, int k) {
+        int rank = 0;
+        int used = 0;
+        for (int i = 0; i < k; i++) {
+            int cell = cells[i];
+            int digit = cell - Integer.bitCount(used & ((1 << cell) - 1));
+            rank = rank * (DIMENSION * DIMENSION - i) + digit;
+            used |= 1 << cell;
+        }
+        return rank;
+    }
+
+    // inverse of rank: write the k cells of the placement into cells
+    static void unrank(int rank, int k, int[] cells) {
+        for (int i = k - 1; i >= 0; i--) {
+            int radix = DIMENSION * DIMENSION - i;
+            cells[i] = rank % radix;
+            rank /= radix;
+        }
+        // digits count free cells only; turn each into the actual cell
+        int used = 0;
+        for (int i = 0; i < k; i++) {
+            int digit = cells[i];
+            int cell = 0;
+            while (true) {
+                if ((used & (1 << cell)) == 0) {
+                    if (digit == 0) break;
+                    digit--;
+                }
+                cell++;
+            }
+            cells[i] = cell;
+            used |= 1 << cell;
+        }
+    }
+
+    // admissible estimate of the moves needed to solve board, which must be 4x4
+    public int estimate(Board board) {
+        int estimate = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            estimate += patternCost(p, board, 0, -1);
+        }
+        return estimate;
+    }
+
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int p = patternOf[tile];
+        return estimate - patternCost(p, board, tile, from) + patternCost(p, board, tile, to);
+    }
+
+    public boolean supports(int dimension) {
+        return dimension == DIMENSION;
+    }
+
+    public String toString() {
+        return "pdb";
+    }
+
+    // table entry of pattern p for board, with movedTile read as sitting at movedCell
+    private int patternCost(int p, Board board, int movedTile, int movedCell) {
+        int[] pattern = patterns[p];
+        int rank = 0;
+        int used = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            int cell = pattern[i] == movedTile ? movedCell : board.cellOf(pattern[i]);
+            int digit = cell - Integer.bitCount(used & ((1 << cell) - 1));
+            rank = rank * (DIMENSION * DIMENSION - i) + digit;
+            used |= 1 << cell;
+        }
+        return tables[p].get(rank) & 0xFF;
+    }
+
+    private static ByteBuffer map(File file, int[] pattern) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int headerBytes = headerBytes(pattern.length);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != DIMENSION
+                    || mapped.getInt(8) != pattern.length
+                    || channel.size() != headerBytes + tableSize(pattern.length)) {
+                throw new IllegalStateException("not a pattern database table: " + file);
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                if (mapped.getInt(12 + 4 * i) != pattern[i]) {
+                    throw new IllegalStateException("table is for other tiles: " + file);
+                }
+            }
+            mapped.position(headerBytes);
+            return mapped.slice();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not map " + file, e);
+        }
+    }
+
+    // magic, dimension, tile count and the tiles, one int each
+    static int headerBytes(int k) {
+        return 4 * (3 + k);
+    }
+}
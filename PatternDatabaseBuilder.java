@@ -0,0 +1,178 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 PatternDatabaseBuilder.java
+ *  Execution:    java-algs4 -Xmx2g PatternDatabaseBuilder [directory]
+ *  Dependencies: PatternDatabase.java
+ *
+ *  Description: Offline builder for the 4x4 additive pattern database. For each
+ *               pattern it runs a retrograde breadth-first search from the goal
+ *               over (placement of the pattern's tiles, blank cell). Moving the
+ *               blank past a non-pattern tile costs nothing and moving a pattern
+ *               tile costs one move, so each layer is first closed under free
+ *               blank moves before the next layer starts (0-1 BFS). A placement's
+ *               entry is its fewest moves over all blank cells.
+ *
+ *               % java-algs4 -Xmx2g PatternDatabaseBuilder pdb
+ *               pdb/pdb-4x4-1-5-6-9-10-13.bin: 5765760 entries, max 28, 34.6s
+ *               ...
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class PatternDatabaseBuilder {
+    private static final int CELLS = PatternDatabase.DIMENSION * PatternDatabase.DIMENSION;
+    private static final byte UNSEEN = (byte) 0xFF;
+    // reached by a pattern move from the current layer, so at most one layer deeper
+    private static final byte PENDING = (byte) 0xFE;
+
+    private PatternDatabaseBuilder() { }
+
+    // build the table of one pattern: entry[rank] = fewest pattern moves to the goal
+    static byte[] build(int[] pattern) {
+        int k = pattern.length;
+        int size = PatternDatabase.tableSize(k);
+        // distance of every (placement, blank cell) state; state = rank * CELLS + blank
+        byte[] distance = new byte[size * CELLS];
+        Arrays.fill(distance, UNSEEN);
+
+        int[] cells = new int[k];
+        for (int i = 0; i < k; i++) cells[i] = pattern[i] - 1;
+        int goal = PatternDatabase.rank(cells, k) * CELLS + (CELLS - 1);
+        distance[goal] = 0;
+
+        IntQueue layer = new IntQueue();
+        IntQueue nextLayer = new IntQueue();
+        layer.add(goal);
+        int depth = 0;
+        while (!layer.isEmpty()) {
+            // the layer grows while we walk it, as free blank moves stay at this depth
+            for (int i = 0; i < layer.size(); i++) {
+                int state = layer.get(i);
+                int rank = state / CELLS;
+                int blank = state % CELLS;
+                PatternDatabase.unrank(rank, k, cells);
+                int occupied = 0;
+                for (int j = 0; j < k; j++) occupied |= 1 << cells[j];
+
+                int row = blank / PatternDatabase.DIMENSION;
+                int col = blank % PatternDatabase.DIMENSION;
+                for (int dir = 0; dir < 4; dir++) {
+                    int target;
+                    if (dir == 0) target = row > 0 ? blank - PatternDatabase.DIMENSION : -1;
+                    else if (dir == 1) target = row < PatternDatabase.DIMENSION - 1
+                                                ? blank + PatternDatabase.DIMENSION : -1;
+                    else if (dir == 2) target = col > 0 ? blank - 1 : -1;
+                    else target = col < PatternDatabase.DIMENSION - 1 ? blank + 1 : -1;
+                    if (target < 0) continue;
+
+                    if ((occupied & (1 << target)) == 0) {
+                        // blank passes a tile outside the pattern: same depth
+                        int next = rank * CELLS + target;
+                        if (distance[next] == UNSEEN || distance[next] == PENDING) {
+                            distance[next] = (byte) depth;
+                            layer.add(next);
+                        }
+                    }
+                    else {
+                        // a pattern tile slides into the blank: one move deeper
+                        int j = 0;
+                        while (cells[j] != target) j++;
+                        cells[j] = blank;
+                        int next = PatternDatabase.rank(cells, k) * CELLS + target;
+                        cells[j] = target;
+                        if (distance[next] == UNSEEN) {
+                            distance[next] = PENDING;
+                            nextLayer.add(next);
+                        }
+                    }
+                }
+            }
+
+            depth++;
+            layer.clear();
+            for (int i = 0; i < nextLayer.size(); i++) {
+                int state = nextLayer.get(i);
+                // skip states that a free move reached within the previous layer
+                if (distance[state] == PENDING) {
+                    distance[state] = (byte) depth;
+                    layer.add(state);
+                }
+            }
+            nextLayer.clear();
+        }
+
+        byte[] table = new byte[size];
+        for (int rank = 0; rank < size; rank++) {
+            int best = 0xFF;
+            for (int blank = 0; blank < CELLS; blank++) {
+                int d = distance[rank * CELLS + blank] & 0xFF;
+                if (d < best) best = d;
+            }
+            table[rank] = (byte) best;
+        }
+        return table;
+    }
+
+    // write the table of one pattern, with the header PatternDatabase checks on load
+    static void write(File file, int[] pattern, byte[] table) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(PatternDatabase.MAGIC);
+            out.writeInt(PatternDatabase.DIMENSION);
+            out.writeInt(pattern.length);
+            for (int tile : pattern) out.writeInt(tile);
+            out.write(table);
+        }
+    }
+
+    // growable list of ints, so the search never boxes its states
+    private static class IntQueue {
+        private int[] items = new int[1 << 16];
+        private int size = 0;
+
+        private void add(int item) {
+            if (size == items.length) items = Arrays.copyOf(items, 2 * size);
+            items[size++] = item;
+        }
+
+        private int get(int i) {
+            return items[i];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+    // build every table of the default partition into the given directory
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : PatternDatabase.DEFAULT_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create " + directory);
+        }
+        for (int[] pattern : PatternDatabase.DEFAULT_PARTITION) {
+            long start = System.nanoTime();
+            byte[] table = build(pattern);
+            File file = PatternDatabase.fileFor(directory, pattern);
+            write(file, pattern, table);
+            int max = 0;
+            for (byte entry : table) max = Math.max(max, entry & 0xFF);
+            StdOut.printf("%s: %d entries, max %d, %.1fs%n", file, table.length, max,
+                          (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -1,12 +1,65 @@
 /******************************************************************************
  *  Compilation:  javac-algs4 PuzzleChecker.java
- *  Execution:    java-algs4 PuzzleChecker filename1.txt filename2.txt ...
- *  Dependencies: Board.java Solver.java
+ *  Execution:    java-algs4 PuzzleChecker [-h heuristic,...] [-j threads] [-m megabytes]
+ *                                 [-e engine] [-s csv|json] [-o results.bin]
+ *                                 filename1.txt ... [batch.bin ...]
+ *  Dependencies: Board.java Solver.java BatchReader.java ResultWriter.java
  *
  *  This program creates an initial board from each filename specified
  *  on the command line and finds the minimum number of moves to
  *  reach the goal state.
  *
+ *  With -h, each board is solved once per listed heuristic (manhattan,
+ *  linear-conflict, walking-distance, pdb) and every line also reports
+ *  the heuristic used, the nodes expanded and the wall time. A heuristic
+ *  that does not support the board's size is replaced by manhattan, and
+ *  the line names manhattan:
+ *
+ *  % java-algs4 PuzzleChecker -h manhattan,linear-conflict puzzle4x4-40.txt
+ *  puzzle4x4-40.txt: 40 manhattan 747658 nodes 108 ms
+ *  puzzle4x4-40.txt: 40 linear-conflict 57548 nodes 57 ms
+ *
+ *  With -j, the files are solved concurrently on a pool of that many
+ *  threads. Results still print in input order, followed by the batch
+ *  throughput and latency percentiles. Only two boards per thread are
+ *  read ahead, so batches of any size stream through. Each solve may
+ *  retain at most -m megabytes (by default 3/4 of the heap split evenly
+ *  across the threads); a board that needs more prints "memory limit
+ *  exceeded" instead of starving the others:
+ *
+ *  % java-algs4 PuzzleChecker -j 4 puzzle*.txt
+ *  puzzle00.txt: 0
+ *  ...
+ *  149 puzzles in 10.09 s: 14.8 puzzles/s
+ *  latency p50 4.5 ms, p90 70.6 ms, p99 329.3 ms, max 9114.8 ms
+ *
+ *  With -e, every board is solved by the named engine (astar, ida-star,
+ *  hda-star, which spreads one A* search over all processors,
+ *  bidirectional, ara-star, which may stop short of optimal, or external,
+ *  which keeps its frontier on disk under java.io.tmpdir, fits its
+ *  in-memory runs to -m and takes boards up to 4x4 only) rather than the
+ *  default for its size.
+ *
+ *  With -s, each solve prints its SolverStats instead, as a CSV row
+ *  (after one header row) or a JSON line; boards over the memory limit
+ *  still print the plain "memory limit exceeded" line:
+ *
+ *  % java-algs4 PuzzleChecker -s csv puzzle3x3-20.txt
+ *  file,engine,heuristic,moves,nodes_expanded,...,wall_ms,cpu_ms
+ *  puzzle3x3-20.txt,ASTAR,manhattan,20,...
+ *
+ *  Files ending in .bin are batches written by BatchWriter; each of
+ *  their boards is solved in turn and labelled by its position in the
+ *  batch. With -o, every solution is also written to a binary result
+ *  file (see ResultWriter), keyed by the board's position in the whole
+ *  input:
+ *
+ *  % java-algs4 BatchWriter corpus.bin puzzle*.txt
+ *  % java-algs4 PuzzleChecker -o results.bin corpus.bin
+ *  corpus.bin#0: 0
+ *  corpus.bin#1: 1
+ *  ...
+ *
  *  % java-algs4 PuzzleChecker puzzle*.txt
  *  puzzle00.txt: 0
  *  puzzle01.txt: 1
@@ -25,30 +78,239 @@
  *
  ******************************************************************************/
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class PuzzleChecker {
+    private static final String CSV = "csv";
+    private static final String JSON = "json";
+    // suffix of batch files written by BatchWriter
+    private static final String BATCH_SUFFIX = ".bin";
+    // boards queued or being solved per thread with -j; the rest of the input waits unread
+    private static final int IN_FLIGHT_PER_THREAD = 2;
 
-    public static void main(String[] args) {
+    // settings from the command line, fixed before any board is solved
+    private static Heuristic[] heuristics = null;
+    private static long memoryLimit = -1;
+    private static Solver.Engine engine = null;
+    private static String statsFormat = null;
+    private static ResultWriter results = null;
 
-        // for each command-line argument
-        for (String filename : args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int first = 0;
+        int threads = 0;
+        String resultFile = null;
+        while (first + 1 < args.length && args[first].startsWith("-")) {
+            String flag = args[first];
+            String value = args[first + 1];
+            if (flag.equals("-h")) heuristics = parseHeuristics(value);
+            else if (flag.equals("-j")) threads = Integer.parseInt(value);
+            else if (flag.equals("-m")) memoryLimit = Long.parseLong(value) * 1024 * 1024;
+            else if (flag.equals("-s")) statsFormat = parseStatsFormat(value);
+            else if (flag.equals("-e")) engine = parseEngine(value);
+            else if (flag.equals("-o")) resultFile = value;
+            else throw new IllegalArgumentException("unknown option: " + flag);
+            first += 2;
+        }
+        String[] filenames = Arrays.copyOfRange(args, first, args.length);
+        if (CSV.equals(statsFormat)) StdOut.println("file," + SolverStats.csvHeader());
+        if (resultFile != null) results = new ResultWriter(new File(resultFile));
 
-            // read in the board specified in the filename
-            In in = new In(filename);
-            int n = in.readInt();
-            int[][] tiles = new int[n][n];
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    tiles[i][j] = in.readInt();
+        try {
+            if (threads > 0) {
+                if (memoryLimit < 0) memoryLimit = Runtime.getRuntime().maxMemory() / 4 * 3 / threads;
+                checkInParallel(filenames, threads);
+                return;
+            }
+            memoryLimit = Math.max(memoryLimit, 0);
+
+            // for each board named on the command line
+            forEachBoard(filenames, (index, label, initial) -> {
+                for (String line : check(index, label, initial)) StdOut.println(line);
+            });
+        }
+        finally {
+            if (results != null) results.close();
+        }
+    }
+
+    // receives each board of the input files in turn
+    private interface BoardVisitor {
+        // board is the index-th of the whole input, described by label
+        void visit(long index, String label, Board board) throws InterruptedException;
+    }
+
+    // hand every board to visitor in input order: one per text file, and every board of a
+    // batch file, streamed and labelled file#i for its i-th board
+    private static void forEachBoard(String[] filenames, BoardVisitor visitor)
+            throws InterruptedException, IOException {
+        long index = 0;
+        for (String filename : filenames) {
+            if (!filename.endsWith(BATCH_SUFFIX)) {
+                visitor.visit(index++, filename, BatchWriter.readText(filename));
+                continue;
+            }
+            try (BatchReader batch = new BatchReader(new File(filename))) {
+                while (batch.hasNext()) {
+                    String label = filename + "#" + batch.position();
+                    visitor.visit(index++, label, batch.next());
                 }
             }
+        }
+    }
+
+    // solve the boards on a pool of threads, printing results in input order as they are
+    // ready, then the throughput and latency percentiles
+    private static void checkInParallel(String[] filenames, int threads)
+            throws InterruptedException, IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int window = IN_FLIGHT_PER_THREAD * threads;
+        Deque<Future<List<String>>> pending = new ArrayDeque<>();
+        List<Double> latencies = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            forEachBoard(filenames, (index, label, initial) -> {
+                // print what is done at the head, and wait for it while the window is full
+                while (!pending.isEmpty()
+                        && (pending.size() >= window || pending.peek().isDone())) {
+                    latencies.add(printTimed(pending.poll()));
+                }
+                pending.add(pool.submit(() -> timed(index, label, initial)));
+            });
+            while (!pending.isEmpty()) latencies.add(printTimed(pending.poll()));
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
 
-            // solve the slider puzzle
-            Board initial = new Board(tiles);
-            Solver solver = new Solver(initial);
-            StdOut.println(filename + ": " + solver.moves());
+        double[] sorted = new double[latencies.size()];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = latencies.get(i);
+        Arrays.sort(sorted);
+        StdOut.printf("%d puzzles in %.2f s: %.1f puzzles/s%n", sorted.length, seconds,
+                      sorted.length / seconds);
+        StdOut.printf("latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                      SolverStats.percentile(sorted, 50), SolverStats.percentile(sorted, 90),
+                      SolverStats.percentile(sorted, 99), SolverStats.percentile(sorted, 100));
+    }
+
+    // print the lines of a timed check once it is done; its latency in milliseconds
+    private static double printTimed(Future<List<String>> result) throws InterruptedException {
+        List<String> lines;
+        try {
+            lines = result.get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("solver failed", e.getCause());
+        }
+        // the last line of a timed check is its latency in milliseconds
+        double latency = Double.parseDouble(lines.remove(lines.size() - 1));
+        for (String line : lines) StdOut.println(line);
+        return latency;
+    }
+
+    // the lines of check() followed by the time it took in milliseconds
+    private static List<String> timed(long index, String label, Board initial) {
+        long start = System.nanoTime();
+        List<String> lines = check(index, label, initial);
+        lines.add(Double.toString((System.nanoTime() - start) / 1e6));
+        return lines;
+    }
+
+    // solve initial, the index-th board of the input, once per heuristic if any are given,
+    // and return the lines to print, led by label. A memoryLimit of 0 means no cap, a null
+    // engine the default one; a statsFormat of csv or json replaces each result with its
+    // statistics. Each solve within the limit is also recorded in the result file, if any
+    private static List<String> check(long index, String label, Board initial) {
+        List<String> lines = new ArrayList<>();
+
+        // solve the slider puzzle
+        if (heuristics == null) {
+            try {
+                Solver solver = new Solver(initial, new SolverOptions().withEngine(engine)
+                                                                     .withMemoryLimit(memoryLimit));
+                record(index, solver);
+                if (statsFormat != null) lines.add(format(label, solver.stats(), statsFormat));
+                else lines.add(label + ": " + solver.moves());
+            }
+            catch (SearchLimitException e) {
+                lines.add(label + ": memory limit exceeded");
+            }
+            return lines;
+        }
+        for (Heuristic heuristic : heuristics) {
+            SolverOptions options = new SolverOptions().withEngine(engine)
+                                                       .withHeuristic(heuristic)
+                                                       .withMemoryLimit(memoryLimit);
+            // a heuristic that does not support the board's size falls back to Manhattan
+            Heuristic used = options.heuristicFor(initial);
+            long start = System.nanoTime();
+            try {
+                Solver solver = new Solver(initial, options);
+                long millis = (System.nanoTime() - start) / 1000000;
+                record(index, solver);
+                if (statsFormat != null) lines.add(format(label, solver.stats(), statsFormat));
+                else lines.add(label + ": " + solver.moves() + " " + used + " "
+                                  + solver.nodesExpanded() + " nodes " + millis + " ms");
+            }
+            catch (SearchLimitException e) {
+                lines.add(label + ": memory limit exceeded (" + used + ")");
+            }
+        }
+        return lines;
+    }
+
+    // append the solution of the index-th board to the result file, if one was named
+    private static void record(long index, Solver solver) {
+        if (results == null) return;
+        try {
+            results.write(index, solver.directions());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not write the result file", e);
+        }
+    }
+
+    // stats as a CSV row led by the filename, or as a JSON line
+    private static String format(String filename, SolverStats stats, String statsFormat) {
+        if (CSV.equals(statsFormat)) return filename + "," + stats.toCsv();
+        return stats.toJson(filename);
+    }
+
+    // engine named on the command line, e.g. ida-star for IDA_STAR
+    private static Solver.Engine parseEngine(String name) {
+        return Solver.Engine.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    private static String parseStatsFormat(String value) {
+        if (value.equals(CSV) || value.equals(JSON)) return value;
+        throw new IllegalArgumentException("unknown stats format: " + value);
+    }
+
+    // heuristics named in a comma-separated list
+    private static Heuristic[] parseHeuristics(String list) {
+        String[] names = list.split(",");
+        Heuristic[] heuristics = new Heuristic[names.length];
+        for (int i = 0; i < names.length; i++) {
+            heuristics[i] = Heuristic.named(names[i]);
+            if (heuristics[i] == null) {
+                throw new IllegalArgumentException(names[i] + " tables not found, run "
+                                                           + "PatternDatabaseBuilder first");
+            }
         }
+        return heuristics;
     }
 }
@@ -0,0 +1,81 @@
+/* *****************************************************************************
+ *  Description: Writes solver results for a batch into one binary file. The
+ *               file is the magic "RES1" and the number of results (a long,
+ *               filled in on close), then one record per board: the board's
+ *               index in its batch as a long, the number of moves as a short
+ *               (-1 for an unsolvable board), then the blank's direction for
+ *               each move, packed four to a byte from the low bits up, so a
+ *               50-move solution takes 13 bytes.
+ **************************************************************************** */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class ResultWriter implements Closeable {
+    // first bytes of a result file
+    static final int MAGIC = 0x52455331; // "RES1"
+    // moves recorded for an unsolvable board
+    static final short UNSOLVABLE = -1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long count = 0;
+
+    // start a new result file, replacing any file already there
+    public ResultWriter(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).putLong(0L);
+    }
+
+    // record the blank's directions solving the board at index, or null if it is unsolvable
+    public synchronized void write(long index, byte[] directions) throws IOException {
+        int packed = directions == null ? 0 : (directions.length + 3) / 4;
+        if (buffer.remaining() < Long.BYTES + Short.BYTES + packed) flush();
+        if (buffer.remaining() < Long.BYTES + Short.BYTES + packed) {
+            throw new IllegalArgumentException("solution too long: " + directions.length);
+        }
+        buffer.putLong(index);
+        if (directions == null) {
+            buffer.putShort(UNSOLVABLE);
+        }
+        else {
+            buffer.putShort((short) directions.length);
+            for (int i = 0; i < directions.length; i += 4) {
+                int bits = 0;
+                for (int j = i; j < Math.min(i + 4, directions.length); j++) {
+                    bits |= directions[j] << (2 * (j - i));
+                }
+                buffer.put((byte) bits);
+            }
+        }
+        count++;
+    }
+
+    // results written so far
+    public synchronized long count() {
+        return count;
+    }
+
+    // write out what is buffered and record the number of results in the header
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            channel.write(header, Integer.BYTES);
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
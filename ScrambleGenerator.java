@@ -0,0 +1,144 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 ScrambleGenerator.java
+ *  Execution:    java-algs4 ScrambleGenerator [-s seed] [-n dimension]
+ *                                             [-d depth | -w walk] [-c count]
+ *                                             output.bin | directory
+ *  Dependencies: Board.java Solver.java BatchWriter.java
+ *
+ *  Description: Seeded generator of solvable boards at a controlled
+ *               difficulty. A random walk of the blank from the goal, never
+ *               stepping straight back, gives a solvable board at most that
+ *               many moves from the goal for any dimension. A board at an
+ *               exact optimal depth is found by solving walks and keeping one
+ *               whose shortest solution has that length, lengthening or
+ *               shortening the next walk by the shortfall; that needs a solve
+ *               per try, so it suits 3x3 (instant with the solution table)
+ *               and 4x4 up to depths in the 50s.
+ *
+ *               The same seed always gives the same boards. They are written
+ *               as one batch (see BatchWriter) when the output ends in .bin,
+ *               else as puzzle text files in the output directory:
+ *
+ *               % java-algs4 ScrambleGenerator -s 1 -n 4 -d 30 -c 100 depth30.bin
+ *               depth30.bin: 100 boards, 912 bytes
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+public class ScrambleGenerator {
+    // walks tried for one board at an exact depth before giving up
+    private static final int MAX_TRIES = 10000;
+
+    private final Random random;
+    private final SolverOptions options;
+
+    // generator whose boards depend only on seed; exact depths are measured with options
+    public ScrambleGenerator(long seed, SolverOptions options) {
+        if (options == null) throw new IllegalArgumentException("argument cannot be null");
+        this.random = new Random(seed);
+        this.options = options;
+    }
+
+    // generator whose boards depend only on seed
+    public ScrambleGenerator(long seed) {
+        this(seed, new SolverOptions());
+    }
+
+    // board reached from the n-by-n goal by length random moves of the blank, none undoing
+    // the one before
+    public Board randomWalk(int n, int length) {
+        if (n < 2) throw new IllegalArgumentException("dimension must be at least 2");
+        if (length < 0) throw new IllegalArgumentException("walk length cannot be negative");
+        int[][] tiles = new int[n][n];
+        for (int cell = 0; cell < n * n - 1; cell++) tiles[cell / n][cell % n] = cell + 1;
+        Board board = new Board(tiles).mutableCopy();
+        int last = -1;
+        for (int step = 0; step < length; step++) {
+            int legal = board.legalMoves();
+            if (last >= 0) legal &= ~(1 << Board.opposite(last));
+            // pick uniformly among the allowed directions
+            int choice = random.nextInt(Integer.bitCount(legal));
+            int direction = Board.UP;
+            while (true) {
+                if ((legal & (1 << direction)) != 0 && choice-- == 0) break;
+                direction++;
+            }
+            board.applyMove(direction);
+            last = direction;
+        }
+        return board.mutableCopy();
+    }
+
+    // board whose shortest solution is exactly depth moves
+    public Board atDepth(int n, int depth) {
+        if (depth < 0) throw new IllegalArgumentException("depth cannot be negative");
+        int length = depth;
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            Board board = randomWalk(n, length);
+            int moves = new Solver(board, options).moves();
+            if (moves == depth) return board;
+            // walks fold back on themselves, so aim the next one by the miss. A board's
+            // distance has the parity of any walk to it, so the length keeps depth's parity
+            length = Math.max(depth, length + depth - moves);
+        }
+        throw new IllegalStateException("no " + n + "x" + n + " board at depth " + depth
+                                                + " after " + MAX_TRIES + " walks");
+    }
+
+    // write board in the puzzle text format read by PuzzleChecker
+    static void writeText(File file, Board board) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+            out.print(board);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int n = 4;
+        int depth = -1;
+        int walk = -1;
+        int count = 1;
+        int first = 0;
+        while (first + 1 < args.length && args[first].startsWith("-")) {
+            String flag = args[first];
+            String value = args[first + 1];
+            if (flag.equals("-s")) seed = Long.parseLong(value);
+            else if (flag.equals("-n")) n = Integer.parseInt(value);
+            else if (flag.equals("-d")) depth = Integer.parseInt(value);
+            else if (flag.equals("-w")) walk = Integer.parseInt(value);
+            else if (flag.equals("-c")) count = Integer.parseInt(value);
+            else throw new IllegalArgumentException("unknown option: " + flag);
+            first += 2;
+        }
+        if ((depth < 0) == (walk < 0)) throw new IllegalArgumentException("give one of -d and -w");
+        File output = new File(args[first]);
+        ScrambleGenerator generator = new ScrambleGenerator(seed);
+
+        if (output.getName().endsWith(".bin")) {
+            try (BatchWriter writer = new BatchWriter(output)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(depth >= 0 ? generator.atDepth(n, depth)
+                                            : generator.randomWalk(n, walk));
+                }
+                StdOut.printf("%s: %d boards, ", output, writer.count());
+            }
+            StdOut.printf("%d bytes%n", output.length());
+            return;
+        }
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("could not create " + output);
+        }
+        String difficulty = depth >= 0 ? "d" + depth : "w" + walk;
+        for (int i = 0; i < count; i++) {
+            Board board = depth >= 0 ? generator.atDepth(n, depth) : generator.randomWalk(n, walk);
+            writeText(new File(output, String.format("scramble%dx%d-%s-%s-%03d.txt", n, n,
+                                                     difficulty, seed, i)), board);
+        }
+        StdOut.printf("%s: %d boards%n", output, count);
+    }
+}
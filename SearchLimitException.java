@@ -0,0 +1,12 @@
+/* *****************************************************************************
+ *  Description: Thrown by Solver when a search would exceed a limit set in its
+ *               SolverOptions, such as the memory cap, before finding a solution.
+ **************************************************************************** */
+
+public class SearchLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SearchLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,296 @@
+/* *****************************************************************************
+ *  Description: Cache of optimal solutions in front of Solver. Boards up to
+ *               4x4 are keyed by their packed word after canonicalizing under
+ *               the transpose symmetry: mirroring a board across its main
+ *               diagonal and relabeling every tile by its mirrored goal cell
+ *               gives a board that is solved by the same moves with UP and
+ *               LEFT, DOWN and RIGHT exchanged. The smaller of the two words is
+ *               the key, so one solve serves both boards.
+ *
+ *               Solutions are kept as move strings, one letter (U, D, L or R)
+ *               per step of the blank. A bounded LRU map holds the most recent
+ *               ones. When a file is given, every new solution is also appended
+ *               to it, and on startup the file is memory-mapped and indexed, so
+ *               earlier runs' solutions are read straight from the mapping.
+ *
+ *               File layout: the magic "SOL1", then records of
+ *               [long key][byte dimension][short moves][moves bytes of letters].
+ *               A record cut short by a crash is dropped on the next start. The
+ *               file is mapped as one buffer, so it stops growing at 2 GB; later
+ *               solutions are then kept in memory only.
+ *
+ *               Only the exact engines' solutions are stored. ARA*'s answer is
+ *               returned but never cached, even when it claims a bound of 1.
+ *
+ *               Unsolvable boards are answered from their parity without a
+ *               lookup. Boards wider than 4x4 have no exact compact key and are
+ *               always solved afresh.
+ **************************************************************************** */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache implements Closeable {
+    // first bytes of every cache file
+    static final int MAGIC = 0x534F4C31; // "SOL1"
+    // key, dimension and move count in front of the letters
+    private static final int RECORD_HEADER_BYTES = Long.BYTES + 1 + Short.BYTES;
+    private static final int LARGEST_PACKED_DIMENSION = 4;
+    // letter of each direction, indexed by Board.UP, DOWN, LEFT, RIGHT
+    private static final char[] LETTERS = { 'U', 'D', 'L', 'R' };
+    // largest file a single mapping can cover
+    private static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+    // engines whose solutions are always shortest
+    private static final EnumSet<Solver.Engine> EXACT_ENGINES =
+            EnumSet.of(Solver.Engine.ASTAR, Solver.Engine.IDA_STAR, Solver.Engine.HDA_STAR,
+                       Solver.Engine.BIDIRECTIONAL, Solver.Engine.TABLE, Solver.Engine.EXTERNAL);
+
+    private final SolverOptions options;
+    private final Map<Long, String> recent;
+    private final FileChannel channel;
+    // file offset of the record of every key on disk
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private MappedByteBuffer mapped;
+    private long fileSize;
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    // cache holding the capacity most recently used solutions in memory only
+    public SolutionCache(int capacity, SolverOptions options) {
+        this(capacity, null, options);
+    }
+
+    // cache holding the capacity most recently used solutions in memory, backed by every
+    // solution in file (created if missing). Misses are solved with the given options
+    public SolutionCache(final int capacity, File file, SolverOptions options) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        if (options == null) throw new IllegalArgumentException("argument cannot be null");
+        this.options = options;
+        recent = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (file == null) {
+            channel = null;
+            return;
+        }
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                       StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index(file);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not open " + file, e);
+        }
+    }
+
+    // fewest moves to solve board, or -1 if it is unsolvable
+    public int moves(Board board) {
+        String moves = solve(board);
+        return moves == null ? -1 : moves.length();
+    }
+
+    // a shortest solution of board as the blank's moves (U, D, L or R per step), or null
+    // if board is unsolvable; with an anytime engine, possibly a longer one that is not
+    // cached. Thread-safe; solves run outside the lock
+    public String solve(Board board) {
+        if (board == null) throw new IllegalArgumentException("argument cannot be null");
+        if (!board.isSolvable()) return null;
+        if (board.dimension() > LARGEST_PACKED_DIMENSION) {
+            synchronized (this) {
+                misses++;
+            }
+            return letters(new Solver(board, options));
+        }
+
+        long key = board.key();
+        long transposedKey = transposedKey(board);
+        boolean transposed = transposedKey < key;
+        long canonicalKey = transposed ? transposedKey : key;
+        String canonical = lookup(canonicalKey, board.dimension());
+        if (canonical == null) {
+            Solver solver = new Solver(board, options);
+            String moves = letters(solver);
+            if (EXACT_ENGINES.contains(options.engineFor(board))) {
+                store(canonicalKey, board.dimension(), transposed ? transpose(moves) : moves);
+            }
+            return moves;
+        }
+        return transposed ? transpose(canonical) : canonical;
+    }
+
+    // lookups answered by the in-memory tier
+    public synchronized long memoryHits() {
+        return memoryHits;
+    }
+
+    // lookups answered from the file
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    // lookups that had to run the solver
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // distinct solutions in the file
+    public synchronized int diskEntries() {
+        return offsets.size();
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    // moves stored for the canonical key, counting the hit or miss
+    private synchronized String lookup(long key, int n) {
+        String moves = recent.get(key);
+        if (moves != null) {
+            memoryHits++;
+            return moves;
+        }
+        Long offset = offsets.get(key);
+        if (offset != null) {
+            moves = read(offset, n);
+            if (moves != null) {
+                diskHits++;
+                recent.put(key, moves);
+                return moves;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    // remember a fresh solution, appending it to the file the first time its key is seen
+    private synchronized void store(long key, int n, String moves) {
+        recent.put(key, moves);
+        if (channel == null || offsets.containsKey(key)) return;
+        if (fileSize + RECORD_HEADER_BYTES + moves.length() > MAX_FILE_BYTES) return;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + moves.length());
+        record.putLong(key).put((byte) n).putShort((short) moves.length());
+        record.put(moves.getBytes(StandardCharsets.US_ASCII));
+        record.flip();
+        try {
+            long offset = fileSize;
+            while (record.hasRemaining()) fileSize += channel.write(record, fileSize);
+            offsets.put(key, offset);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not append to the solution cache", e);
+        }
+    }
+
+    // letters of the record at offset, or null if it is for another dimension
+    private String read(long offset, int n) {
+        if (mapped == null || offset + RECORD_HEADER_BYTES > mapped.limit()) remap();
+        int position = (int) offset;
+        if (mapped.get(position + Long.BYTES) != n) return null;
+        int length = mapped.getShort(position + Long.BYTES + 1);
+        byte[] letters = new byte[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = mapped.get(position + RECORD_HEADER_BYTES + i);
+        }
+        return new String(letters, StandardCharsets.US_ASCII);
+    }
+
+    // map the file and index its records, dropping a partial record at the end
+    private void index(File file) throws IOException {
+        fileSize = channel.size();
+        if (fileSize == 0) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+            magic.flip();
+            while (magic.hasRemaining()) fileSize += channel.write(magic, fileSize);
+        }
+        if (fileSize > MAX_FILE_BYTES) {
+            throw new IllegalStateException("solution cache over 2 GB: " + file);
+        }
+        remap();
+        if (fileSize < Integer.BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IllegalStateException("not a solution cache: " + file);
+        }
+        long position = Integer.BYTES;
+        while (position + RECORD_HEADER_BYTES <= fileSize) {
+            int length = mapped.getShort((int) position + Long.BYTES + 1);
+            long end = position + RECORD_HEADER_BYTES + length;
+            if (length < 0 || end > fileSize) break;
+            offsets.put(mapped.getLong((int) position), position);
+            position = end;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+            fileSize = position;
+            remap();
+        }
+    }
+
+    // map everything written so far, including records appended since the last mapping
+    private void remap() {
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not map the solution cache", e);
+        }
+    }
+
+    // moves of the solution solver found, as letters
+    private static String letters(Solver solver) {
+        byte[] directions = solver.directions();
+        char[] moves = new char[directions.length];
+        for (int i = 0; i < moves.length; i++) moves[i] = LETTERS[directions[i]];
+        return new String(moves);
+    }
+
+    // packed word of board mirrored across the main diagonal, each tile relabeled to the
+    // tile whose goal cell is the mirror of its own
+    static long transposedKey(Board board) {
+        int n = board.dimension();
+        long key = 0L;
+        for (int cell = 0; cell < n * n; cell++) {
+            int tile = board.tileAt(cell);
+            int mirroredCell = (cell % n) * n + cell / n;
+            int mirroredTile = tile == 0 ? 0 : ((tile - 1) % n) * n + (tile - 1) / n + 1;
+            key |= (long) mirroredTile << (mirroredCell << 2);
+        }
+        return key;
+    }
+
+    // moves of the transposed board: UP and LEFT, DOWN and RIGHT exchanged
+    static String transpose(String moves) {
+        char[] letters = moves.toCharArray();
+        for (int i = 0; i < letters.length; i++) {
+            switch (letters[i]) {
+                case 'U':
+                    letters[i] = 'L';
+                    break;
+                case 'L':
+                    letters[i] = 'U';
+                    break;
+                case 'D':
+                    letters[i] = 'R';
+                    break;
+                default:
+                    letters[i] = 'D';
+                    break;
+            }
+        }
+        return new String(letters);
+    }
+}
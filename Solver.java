@@ -1,176 +1,324 @@
 /* *****************************************************************************
- *  Description: Solves an n x n 8puzzle using A*
+ *  Description: Solves an n x n 8puzzle using A*, or IDA* for larger boards
  **************************************************************************** */
 
-import edu.princeton.cs.algs4.MinPQ;
 import edu.princeton.cs.algs4.Stack;
 
-import java.util.Comparator;
-
 public class Solver {
+    // approximate heap bytes of one node of the object-based engines (HDA*, bidirectional
+    // and ARA*): the node, its Board and a queue slot
+    private static final int SEARCH_NODE_BYTES = 32;
+    private static final int BOARD_BYTES = 56;
+    private static final int QUEUE_SLOT_BYTES = 8;
+    // a wide board's tile array adds its header to the tiles themselves
+    private static final int ARRAY_HEADER_BYTES = 16;
+
     private int moves = 0;
     private Stack<Board> movesStack = new Stack<>();
     private boolean cachedIsSolvable;
     private boolean solutionAttempted = false;
     private final Board initialBoard;
+    private final SolverOptions options;
+    private final Heuristic heuristic;
+    private SolverStats stats;
+    private double bound = 1.0;
+
+    // search engines a Solver can run
+    public enum Engine {
+        // A* over a priority queue of search nodes; memory grows with every node generated
+        ASTAR,
+        // iterative-deepening A*; memory linear in the solution depth
+        IDA_STAR,
+        // hash-distributed A* on several threads, each owning a share of the boards
+        HDA_STAR,
+        // meet-in-the-middle search from both the initial board and the goal
+        BIDIRECTIONAL,
+        // anytime weighted A* that improves its solution until a deadline; may be suboptimal
+        ARA_STAR,
+        // lookup in the precomputed 3x3 solution table, no search at all
+        TABLE,
+        // breadth-first heuristic search with its frontier in sorted files on disk; boards
+        // up to 4x4 only
+        EXTERNAL
+    }
 
-    // find a solution to the initial board (use A*)
+    // find a solution to the initial board (A*, or IDA* from 4x4 up)
     public Solver(Board initial) {
-        if (initial == null) {
+        this(initial, new SolverOptions());
+    }
+
+    // find a solution to the initial board with the given options
+    public Solver(Board initial, SolverOptions options) {
+        if (initial == null || options == null) {
             throw new IllegalArgumentException("argument cannot be null");
         }
         // load the input as the initalBoard
         initialBoard = initial;
+        this.options = options;
+        heuristic = options.heuristicFor(initial);
         isSolvable();
     }
 
-    // Inner class used to define a 'node' for the A* search.
-    // board is the nxn board at this node
-    // movesToReachThisBoard is the number of moves from initial node to this node
-    // previousNode is the previousSearchNode. For the initial node, this is null
-    private class SearchNode {
-        private final Board board;
-        private final int movesToReachThisBoard;
-        private final int manhattanPriority;
-        private SearchNode previousNode;
-
-        private SearchNode(Board board, int moves, SearchNode previousNode, int nodePriority) {
-            this.board = board;
-            this.movesToReachThisBoard = moves;
-            this.manhattanPriority = nodePriority;
-            if (previousNode != null) this.previousNode = previousNode;
+    // is the initial board solvable? This is decided up front from the parity of the
+    // tile permutation (and the blank's row on even boards), so unsolvable boards are
+    // never searched. Solvable boards are then searched for a shortest solution
+    public boolean isSolvable() {
+        if (solutionAttempted) return cachedIsSolvable;
+        else {
+            solutionAttempted = true;
+            Engine engine = options.engineFor(initialBoard);
+            stats = options.newStats(engine, heuristic);
+            stats.start();
+            if (!initialBoard.isSolvable()) {
+                movesStack = null;
+                moves = -1;
+                cachedIsSolvable = false;
+            }
+            else if (engine == Engine.IDA_STAR) {
+                cachedIsSolvable = runIdaStar();
+            }
+            else if (engine == Engine.HDA_STAR) {
+                cachedIsSolvable = runHdaStar();
+            }
+            else if (engine == Engine.BIDIRECTIONAL) {
+                cachedIsSolvable = runBidirectional();
+            }
+            else if (engine == Engine.ARA_STAR) {
+                cachedIsSolvable = runAraStar();
+            }
+            else if (engine == Engine.TABLE) {
+                cachedIsSolvable = runTable();
+            }
+            else if (engine == Engine.EXTERNAL) {
+                cachedIsSolvable = runExternal();
+            }
+            else cachedIsSolvable = runAstar();
+            stats.finish(moves);
+            return cachedIsSolvable;
         }
+    }
 
-        private SearchNode getPreviousNode() {
-            return previousNode;
+    // deepen IDA* iterations until the goal is found
+    private boolean runIdaStar() {
+        IdaStarSearch search = new IdaStarSearch(initialBoard, heuristic, stats);
+        while (!search.iterate()) {
+            // keep deepening
         }
+        byte[] directions = search.solution();
+        moves = directions.length;
+        populateMovesStack(directions);
+        return true;
+    }
 
-        private int getMovesToReachThisBoard() {
-            return movesToReachThisBoard;
-        }
+    // split an A* search across the worker threads of the options
+    private boolean runHdaStar() {
+        HdaStarSearch search = new HdaStarSearch(initialBoard, heuristic, stats, options.threads(),
+                                                 options.memoryLimit(), bytesPerNode());
+        Board[] boards = search.solve();
+        moves = boards.length - 1;
+        populateMovesStack(boards);
+        return true;
+    }
 
-        private Board getBoard() {
-            return board;
-        }
+    // search from both ends until the two frontiers meet on a shortest path
+    private boolean runBidirectional() {
+        BidirectionalSearch search = new BidirectionalSearch(initialBoard, heuristic, stats,
+                                                             options.memoryLimit(),
+                                                             bytesPerNode());
+        Board[] boards = search.solve();
+        moves = boards.length - 1;
+        populateMovesStack(boards);
+        return true;
     }
 
-    // is the initial board solvable? This is determined by running two A* searches
-    // in lockstep. One search for the original input, and the other search with the
-    // input's twin. If the twin search reaches the goal then it is not solvable.
-    // Otherwise it's solvable and we've found the solution
-    public boolean isSolvable() {
-        if (solutionAttempted) return cachedIsSolvable;
-        else {
-            solutionAttempted = true;
-            cachedIsSolvable = runAstarInLockStep();
-            return cachedIsSolvable;
+    // weighted A* passes with falling weights until optimal or out of time
+    private boolean runAraStar() {
+        long deadline = options.deadlineMillis() > 0
+                        ? System.nanoTime() + options.deadlineMillis() * 1000000
+                        : Long.MAX_VALUE;
+        AraStarSearch search = new AraStarSearch(initialBoard, heuristic, stats,
+                                                 options.suboptimality(), deadline,
+                                                 options.nodeBudget(), options.memoryLimit(),
+                                                 bytesPerNode());
+        Board[] boards = search.solve();
+        moves = boards.length - 1;
+        bound = search.bound();
+        populateMovesStack(boards);
+        return true;
+    }
+
+    // follow the best moves stored in the 3x3 table
+    private boolean runTable() {
+        EightPuzzleTable table = EightPuzzleTable.shared();
+        if (table == null || initialBoard.dimension() != EightPuzzleTable.DIMENSION) {
+            throw new IllegalStateException("the 3x3 table is not built or does not fit the board");
         }
+        byte[] directions = table.solution(initialBoard);
+        stats.generated(directions.length + 1);
+        moves = directions.length;
+        populateMovesStack(directions);
+        return true;
     }
 
-    private boolean runAstarInLockStep() {
-        boolean lockstep = true; // used to alternate between twin and initial A* searches
-        // initialize the gamePQ
-        MinPQ<SearchNode> gamePQ = new MinPQ<SearchNode>(sortByManhattan());
-        SearchNode initialSearchNode = new SearchNode(initialBoard, 0, null,
-                                                      initialBoard.manhattan());
-        gamePQ.insert(initialSearchNode);
+    // search layer by layer with the frontier on disk, within memory set by the options
+    private boolean runExternal() {
+        ExternalSearch search = new ExternalSearch(initialBoard, heuristic, stats,
+                                                   options.scratchDirectory(),
+                                                   options.memoryLimit());
+        byte[] directions = search.solve();
+        moves = directions.length;
+        populateMovesStack(directions);
+        return true;
+    }
 
-        // create the twinPQ which will run A* in lockstep with the gamePQ
-        MinPQ<SearchNode> twinPQ = new MinPQ<>(sortByManhattan());
-        SearchNode initialTwinSearchNode = new SearchNode(initialBoard.twin(), 0, null,
-                                                          initialBoard.twin().manhattan());
-        twinPQ.insert(initialTwinSearchNode);
+    // A* over a pool of primitive nodes. Packed boards are never materialized: each node's
+    // word is loaded into one scratch board, which is moved in place to generate children
+    private boolean runAstar() {
+        // initialize the open list
+        NodePool pool = new NodePool(initialBoard);
+        IntBucketQueue open = new IntBucketQueue();
+        TranspositionTable closed = new TranspositionTable(initialBoard);
+        Board scratch = initialBoard.mutableCopy();
+        int root = pool.add(initialBoard, 0, heuristic.estimate(initialBoard), -1, -1);
+        closed.offer(initialBoard, 0);
+        open.insert(root, pool.estimate(root), pool.estimate(root));
+        stats.generated(1);
 
+        long memoryLimit = options.memoryLimit();
+        // a wide node also retains its own Board
+        long wideBoardBytes = 0;
+        if (!initialBoard.isPacked()) {
+            int n = initialBoard.dimension();
+            wideBoardBytes = BOARD_BYTES + ARRAY_HEADER_BYTES + n * n;
+        }
         while (true) {
-            // if lockstep true, run the A* iteration on initial game board
-            if (lockstep) {
-                SearchNode latestSearchNode = gamePQ.min();
-                gamePQ.delMin();
-                if (latestSearchNode.getBoard().isGoal()) {
-                    moves = latestSearchNode.getMovesToReachThisBoard();
-                    populateMovesStack(latestSearchNode);
-                    return true;
-                }
-                for (Board b : latestSearchNode.getBoard().neighbors()) {
-                    if (latestSearchNode.getPreviousNode() == null) {
-                        SearchNode neighbor = new SearchNode(b, latestSearchNode
-                                .getMovesToReachThisBoard() + 1, latestSearchNode, b.manhattan());
-                        gamePQ.insert(neighbor);
-                    }
-                    else if (!(b.equals(latestSearchNode.getPreviousNode().getBoard()))) {
-                        SearchNode neighbor = new SearchNode(b, latestSearchNode
-                                .getMovesToReachThisBoard() + 1,
-                                                             latestSearchNode, b.manhattan());
-                        gamePQ.insert(neighbor);
-                    }
-                }
-                lockstep = false;
+            int node = open.delMin();
+            Board board = initialBoard.isPacked() ? scratch : pool.board(node);
+            if (board == scratch) scratch.load(pool.state(node));
+            // superseded by a cheaper path since it was queued
+            if (closed.get(board) < pool.moves(node)) continue;
+            if (pool.estimate(node) == 0 && board.isGoal()) {
+                moves = pool.moves(node);
+                populateMovesStack(pool.path(node));
+                return true;
             }
-            else {
-                SearchNode latestTwinNode = twinPQ.min();
-                twinPQ.delMin();
-                if (latestTwinNode.getBoard().isGoal()) {
-                    movesStack = null;
-                    moves = -1;
-                    return false;
-                }
-
-                for (Board b : latestTwinNode.getBoard().neighbors()) {
-                    if (latestTwinNode.previousNode == null) {
-                        SearchNode neighbor = new SearchNode(b, latestTwinNode
-                                .getMovesToReachThisBoard() + 1, latestTwinNode, b.manhattan());
-                        twinPQ.insert(neighbor);
-                    }
-                    else if (!(b.equals(latestTwinNode.previousNode.getBoard()))) {
-                        SearchNode neighbor = new SearchNode(b, latestTwinNode
-                                .getMovesToReachThisBoard() + 1, latestTwinNode, b.manhattan());
-                        twinPQ.insert(neighbor);
-                    }
-                }
-                lockstep = true;
+            expand(pool, node, board, open, closed);
+            long retained = pool.footprintBytes() + open.footprintBytes()
+                    + closed.footprintBytes() + pool.size() * wideBoardBytes;
+            stats.observe(open.size(), retained);
+            if (memoryLimit > 0 && retained > memoryLimit) {
+                throw new SearchLimitException("A* exceeded the memory limit of " + memoryLimit
+                                                       + " bytes after " + stats.nodesGenerated()
+                                                       + " nodes");
             }
         }
     }
 
-    private void populateMovesStack(SearchNode node) {
-        while (node.getPreviousNode() != null) {
-            movesStack.push(node.getBoard());
-            node = node.getPreviousNode();
+    // estimated bytes retained per generated A* node, excluding the closed set
+    private long bytesPerNode() {
+        long bytes = SEARCH_NODE_BYTES + BOARD_BYTES + QUEUE_SLOT_BYTES;
+        if (!initialBoard.isPacked()) {
+            int n = initialBoard.dimension();
+            bytes += ARRAY_HEADER_BYTES + n * n;
         }
-        movesStack.push(node.getBoard());
+        return bytes;
     }
 
-    private Comparator<SearchNode> sortByManhattan() {
-        return new ByManhattanPriority();
+    // queue every neighbor of node, whose board is given, that has not already been reached
+    // in as few moves. A packed board is moved in place and restored; a wide one is copied
+    private void expand(NodePool pool, int node, Board board, IntBucketQueue open,
+                        TranspositionTable closed) {
+        stats.expanded();
+        int movesToNeighbor = pool.moves(node) + 1;
+        int estimate = pool.estimate(node);
+        int legal = board.legalMoves();
+        // moving the blank back would only regenerate the parent
+        if (pool.lastMove(node) >= 0) legal &= ~(1 << Board.opposite(pool.lastMove(node)));
+        int blank = board.blankCell();
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if ((legal & (1 << direction)) == 0) continue;
+            int cell = board.targetCell(direction);
+            int tile = board.tileAt(cell);
+            Board neighbor = board.isPacked() ? board : board.moved(direction);
+            if (neighbor == board) board.applyMove(direction);
+            if (closed.offer(neighbor, movesToNeighbor)) {
+                int neighborEstimate = heuristic.update(neighbor, estimate, tile, cell, blank);
+                int index = pool.add(neighbor, movesToNeighbor, neighborEstimate, node, direction);
+                open.insert(index, movesToNeighbor + neighborEstimate, neighborEstimate);
+                stats.generated(1);
+            }
+            else stats.pruned();
+            if (neighbor == board) board.undoMove(direction);
+        }
     }
 
-    private class ByManhattanPriority implements Comparator<SearchNode> {
-
-        public int compare(SearchNode o1, SearchNode o2) {
-
-            int priority1 = o1.manhattanPriority + o1.getMovesToReachThisBoard();
-            int priority2 = o2.manhattanPriority + o2.getMovesToReachThisBoard();
+    // replay the blank's moves from the initial board, pushing the boards goal first
+    private void populateMovesStack(byte[] directions) {
+        Board[] boards = new Board[directions.length + 1];
+        boards[0] = initialBoard;
+        for (int i = 0; i < directions.length; i++) {
+            boards[i + 1] = boards[i].moved(directions[i]);
+        }
+        populateMovesStack(boards);
+    }
 
-            if (priority1 < priority2) return -1;
-            else if (priority1 > priority2) return +1;
-            else {
-                if (o1.manhattanPriority < o2.manhattanPriority) return -1;
-                else if (o1.manhattanPriority > o2.manhattanPriority) return +1;
-                else return 0;
-            }
+    // push the boards of a solution, given from the initial board on, goal first
+    private void populateMovesStack(Board[] boards) {
+        for (int i = boards.length - 1; i >= 0; i--) {
+            movesStack.push(boards[i]);
         }
     }
 
-    // min number of moves to solve initial board
+    // min number of moves to solve initial board (with ARA_STAR, the moves of the best
+    // solution found, at most bound() times the minimum)
     public int moves() {
         return moves;
     }
 
+    // proven upper bound on moves() divided by the fewest moves possible; 1.0 when the
+    // solution is known to be optimal
+    public double bound() {
+        return bound;
+    }
+
     // sequence of boards in a shortest solution
     public Iterable<Board> solution() {
         return movesStack;
     }
 
+    // directions of the blank's moves along solution(), or null if the board is unsolvable
+    byte[] directions() {
+        if (movesStack == null) return null;
+        byte[] directions = new byte[moves];
+        Board previous = null;
+        int i = 0;
+        for (Board next : movesStack) {
+            if (previous != null) directions[i++] = (byte) direction(previous, next);
+            previous = next;
+        }
+        return directions;
+    }
+
+    // direction of the blank's move from one board to the next
+    private static int direction(Board from, Board to) {
+        int step = to.blankCell() - from.blankCell();
+        int n = from.dimension();
+        if (step == -n) return Board.UP;
+        if (step == n) return Board.DOWN;
+        if (step == -1) return Board.LEFT;
+        return Board.RIGHT;
+    }
+
+    // nodes expanded by the search
+    public long nodesExpanded() {
+        return stats.nodesExpanded();
+    }
+
+    // node counts, memory and timings of the search
+    public SolverStats stats() {
+        return stats;
+    }
+
     public static void main(String[] args) {
     }
 }
@@ -0,0 +1,461 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 SolverDaemon.java
+ *  Execution:    java-algs4 SolverDaemon [-p port] [-j threads] [-q capacity]
+ *                                        [-c entries] [-f cache.bin] [-m megabytes]
+ *                                        [-t seconds] [-i seconds]
+ *  Dependencies: Board.java SolutionCache.java JsonLine.java
+ *
+ *  Description: Resident solver. Puzzle requests arrive as JSON lines on
+ *               standard input, or with -p on a socket bound to localhost
+ *               that takes any number of connections:
+ *
+ *               {"id": "a", "tiles": [[1, 2, 3], [4, 0, 5], [7, 8, 6]]}
+ *
+ *               The tiles may also be one row-major list. Each request waits
+ *               in a bounded queue (-q, 1024 by default) for one of -j worker
+ *               threads; when the queue is full the reader stops reading, so
+ *               the sender is held back instead of the heap filling up. The
+ *               workers share one SolutionCache (-c entries in memory, backed
+ *               by the file given with -f) and the pattern database and 3x3
+ *               table, which are loaded once at startup. Results are written
+ *               back to the request's connection as soon as they complete, so
+ *               they may come out of order:
+ *
+ *               {"id":"a","moves":2,"solution":"RD","queue_ms":0.02,"latency_ms":0.31}
+ *
+ *               An unsolvable board has moves -1 and a null solution; a bad
+ *               request (tiles that are not a permutation of 0 to n^2 - 1 in
+ *               n rows of n, for 2 <= n <= 16), a board over the -m memory cap
+ *               or one still unsolved after -t seconds gets an "error" member
+ *               instead, as does a solve that fails in any other way, so one
+ *               bad board never takes a worker down. The request
+ *               {"op": "metrics"} is answered at once with counters, the queue
+ *               depth and its high-water mark, cache hits and latency
+ *               percentiles over the last 4096 requests; -i also prints them
+ *               to standard error every so many seconds. On standard input,
+ *               end of input waits for the requests in flight and prints the
+ *               metrics once more.
+ *
+ *               % java-algs4 SolverDaemon -p 7477 -j 4 &
+ *               % java-algs4 SolverDaemonClient 7477 puzzle*.txt
+ **************************************************************************** */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class SolverDaemon implements Closeable {
+    // latencies kept for the percentiles in the metrics
+    private static final int LATENCY_WINDOW = 4096;
+    // tells a worker to stop
+    private static final Job STOP = new Job(null, null, null);
+    // message of the exception that abandons a solve past the time limit
+    private static final String TIME_LIMIT_EXCEEDED = "time limit exceeded";
+
+    private final BlockingQueue<Job> queue;
+    private final SolutionCache cache;
+    private final Thread[] workers;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    // last LATENCY_WINDOW queue waits and latencies in milliseconds, guarded by this
+    private final double[] waits = new double[LATENCY_WINDOW];
+    private final double[] latencies = new double[LATENCY_WINDOW];
+    private long recorded = 0;
+
+    // start threads workers taking requests from a queue of the given capacity and solving
+    // them through cache
+    public SolverDaemon(int threads, int capacity, SolutionCache cache) {
+        if (threads < 1) throw new IllegalArgumentException("need at least one thread");
+        this.cache = cache;
+        queue = new ArrayBlockingQueue<>(capacity);
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "solver-" + i);
+            workers[i].start();
+        }
+    }
+
+    // one request waiting for a worker
+    private static class Job {
+        private final Object id;
+        private final Board board;
+        private final Connection connection;
+        private final long enqueuedNanos = System.nanoTime();
+
+        private Job(Object id, Board board, Connection connection) {
+            this.id = id;
+            this.board = board;
+            this.connection = connection;
+        }
+    }
+
+    // where the responses to one stream of requests go. Responses are written whole lines
+    // at a time, and the output is closed once the input has ended and every request
+    // read from it has been answered
+    private static class Connection {
+        private final Writer out;
+        private final Closeable resource;
+        private int pending = 0;
+        private boolean inputEnded = false;
+
+        private Connection(OutputStream out, Closeable resource) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.resource = resource;
+        }
+
+        private synchronized void accepted() {
+            pending++;
+        }
+
+        private synchronized void respond(String line, boolean answersRequest) {
+            try {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            }
+            catch (IOException e) {
+                // the client went away; its remaining results are dropped
+            }
+            if (answersRequest) pending--;
+            closeIfDone();
+        }
+
+        private synchronized void endOfInput() {
+            inputEnded = true;
+            closeIfDone();
+        }
+
+        // block until every request read so far has been answered
+        private synchronized void awaitResponses() throws InterruptedException {
+            while (pending > 0) wait();
+        }
+
+        private void closeIfDone() {
+            if (pending > 0) return;
+            notifyAll();
+            if (!inputEnded || resource == null) return;
+            try {
+                resource.close();
+            }
+            catch (IOException e) {
+                // nothing left to tell the client
+            }
+        }
+    }
+
+    // read requests from in until it ends, queueing puzzles and writing responses to out;
+    // resource, if any, is closed once every request has been answered
+    void serve(InputStream in, OutputStream out, Closeable resource)
+            throws IOException, InterruptedException {
+        Connection connection = new Connection(out, resource);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+                                                                         StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) accept(line, connection);
+            }
+        }
+        finally {
+            connection.endOfInput();
+        }
+        if (resource == null) connection.awaitResponses();
+    }
+
+    // queue the puzzle on line, blocking while the queue is full, or answer it at once if
+    // it asks for the metrics or cannot be parsed
+    private void accept(String line, Connection connection) throws InterruptedException {
+        Object id = null;
+        Board board;
+        try {
+            Map<String, Object> request = JsonLine.parseObject(line);
+            id = request.get("id");
+            if ("metrics".equals(request.get("op"))) {
+                connection.respond(metrics(), false);
+                return;
+            }
+            board = board(request.get("tiles"));
+        }
+        catch (IllegalArgumentException e) {
+            received.incrementAndGet();
+            failed.incrementAndGet();
+            connection.respond(error(id, e.getMessage()), false);
+            return;
+        }
+        received.incrementAndGet();
+        connection.accepted();
+        queue.put(new Job(id, board, connection));
+        int depth = queue.size();
+        while (true) {
+            int max = maxQueueDepth.get();
+            if (depth <= max || maxQueueDepth.compareAndSet(max, depth)) break;
+        }
+    }
+
+    // board from tiles given as n rows of n numbers or as one row-major list, holding each
+    // of 0 to n^2 - 1 once
+    private static Board board(Object tiles) {
+        if (!(tiles instanceof List)) throw new IllegalArgumentException("tiles must be a list");
+        List<?> rows = (List<?>) tiles;
+        List<Long> cells = new ArrayList<>();
+        boolean nested = !rows.isEmpty() && rows.get(0) instanceof List;
+        for (Object row : rows) {
+            if (nested != row instanceof List) {
+                throw new IllegalArgumentException("tiles must be all rows or all numbers");
+            }
+            if (!nested) cells.add(tile(row));
+            else if (((List<?>) row).size() != rows.size()) {
+                throw new IllegalArgumentException("tiles must have n rows of n numbers");
+            }
+            else for (Object cell : (List<?>) row) cells.add(tile(cell));
+        }
+        int n = (int) Math.round(Math.sqrt(cells.size()));
+        if (n < 2 || n > Board.MAX_DIMENSION || n * n != cells.size()) {
+            throw new IllegalArgumentException("tiles must fill an n-by-n board, 2 <= n <= "
+                                                       + Board.MAX_DIMENSION);
+        }
+        boolean[] seen = new boolean[n * n];
+        int[][] grid = new int[n][n];
+        for (int cell = 0; cell < cells.size(); cell++) {
+            long tile = cells.get(cell);
+            if (tile < 0 || tile >= n * n || seen[(int) tile]) {
+                throw new IllegalArgumentException("tiles must hold each of 0 to " + (n * n - 1)
+                                                           + " once");
+            }
+            seen[(int) tile] = true;
+            grid[cell / n][cell % n] = (int) tile;
+        }
+        return new Board(grid);
+    }
+
+    private static Long tile(Object cell) {
+        if (!(cell instanceof Long)) throw new IllegalArgumentException("tiles must be integers");
+        return (Long) cell;
+    }
+
+    // worker loop: solve queued puzzles until told to stop
+    private void work() {
+        while (true) {
+            Job job;
+            try {
+                job = queue.take();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            if (job == STOP) return;
+            long startNanos = System.nanoTime();
+            String response;
+            try {
+                String solution = cache.solve(job.board);
+                long endNanos = System.nanoTime();
+                double waitMillis = (startNanos - job.enqueuedNanos) / 1e6;
+                double latencyMillis = (endNanos - job.enqueuedNanos) / 1e6;
+                record(waitMillis, latencyMillis);
+                completed.incrementAndGet();
+                response = String.format(Locale.ROOT, "{\"id\":%s,\"moves\":%d,\"solution\":%s,"
+                                                 + "\"queue_ms\":%.3f,\"latency_ms\":%.3f}",
+                                         json(job.id), solution == null ? -1 : solution.length(),
+                                         solution == null ? "null" : "\"" + solution + "\"",
+                                         waitMillis, latencyMillis);
+            }
+            catch (SearchLimitException e) {
+                failed.incrementAndGet();
+                boolean late = TIME_LIMIT_EXCEEDED.equals(e.getMessage());
+                response = error(job.id, late ? TIME_LIMIT_EXCEEDED : "memory limit exceeded");
+            }
+            catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                // answer and carry on: the worker must outlive any one board
+                failed.incrementAndGet();
+                response = error(job.id, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+            job.connection.respond(response, true);
+        }
+    }
+
+    private synchronized void record(double waitMillis, double latencyMillis) {
+        int slot = (int) (recorded++ % LATENCY_WINDOW);
+        waits[slot] = waitMillis;
+        latencies[slot] = latencyMillis;
+    }
+
+    // counters, queue depth, cache hits and percentiles of the recent latencies, as JSON
+    public String metrics() {
+        double[] recentWaits;
+        double[] recentLatencies;
+        synchronized (this) {
+            int size = (int) Math.min(recorded, LATENCY_WINDOW);
+            recentWaits = Arrays.copyOf(waits, size);
+            recentLatencies = Arrays.copyOf(latencies, size);
+        }
+        Arrays.sort(recentWaits);
+        Arrays.sort(recentLatencies);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format(Locale.ROOT, "{\"uptime_s\":%.1f,\"received\":%d,\"completed\":%d,"
+                                     + "\"failed\":%d,\"queue_depth\":%d,\"max_queue_depth\":%d,"
+                                     + "\"queue_capacity\":%d,\"workers\":%d,"
+                                     + "\"cache_memory_hits\":%d,\"cache_disk_hits\":%d,"
+                                     + "\"cache_misses\":%d,\"queue_p99_ms\":%.3f,"
+                                     + "\"latency_p50_ms\":%.3f,\"latency_p90_ms\":%.3f,"
+                                     + "\"latency_p99_ms\":%.3f,\"latency_max_ms\":%.3f}",
+                             seconds, received.get(), completed.get(), failed.get(),
+                             queue.size(), maxQueueDepth.get(),
+                             queue.size() + queue.remainingCapacity(), workers.length,
+                             cache.memoryHits(), cache.diskHits(), cache.misses(),
+                             SolverStats.percentile(recentWaits, 99),
+                             SolverStats.percentile(recentLatencies, 50),
+                             SolverStats.percentile(recentLatencies, 90),
+                             SolverStats.percentile(recentLatencies, 99),
+                             SolverStats.percentile(recentLatencies, 100));
+    }
+
+    // stop the workers once the queue has drained
+    public void close() {
+        for (int i = 0; i < workers.length; i++) {
+            try {
+                queue.put(STOP);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static String error(Object id, String message) {
+        return "{\"id\":" + json(id) + ",\"error\":\"" + SolverStats.escape(message) + "\"}";
+    }
+
+    // id echoed back as it came: a string, a number or null
+    private static String json(Object id) {
+        if (id == null) return "null";
+        if (id instanceof String) return "\"" + SolverStats.escape((String) id) + "\"";
+        return String.valueOf(id);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int capacity = 1024;
+        int entries = 100000;
+        File cacheFile = null;
+        long memoryLimit = -1;
+        int metricsSeconds = 0;
+        long timeLimitMillis = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String flag = args[i];
+            String value = args[i + 1];
+            if (flag.equals("-p")) port = Integer.parseInt(value);
+            else if (flag.equals("-j")) threads = Integer.parseInt(value);
+            else if (flag.equals("-q")) capacity = Integer.parseInt(value);
+            else if (flag.equals("-c")) entries = Integer.parseInt(value);
+            else if (flag.equals("-f")) cacheFile = new File(value);
+            else if (flag.equals("-m")) memoryLimit = Long.parseLong(value) * 1024 * 1024;
+            else if (flag.equals("-t")) timeLimitMillis = (long) (Double.parseDouble(value) * 1000);
+            else if (flag.equals("-i")) metricsSeconds = Integer.parseInt(value);
+            else throw new IllegalArgumentException("unknown option: " + flag);
+        }
+        if (memoryLimit < 0) memoryLimit = Runtime.getRuntime().maxMemory() / 4 * 3 / threads;
+
+        // load the read-only tables once, before the first request, for every worker to share
+        PatternDatabase.shared();
+        EightPuzzleTable.shared();
+
+        SolverOptions options = new SolverOptions().withMemoryLimit(memoryLimit);
+        if (timeLimitMillis > 0) options.withProgress(timeLimit(timeLimitMillis), 0);
+        final SolutionCache cache = new SolutionCache(entries, cacheFile, options);
+        final SolverDaemon daemon = new SolverDaemon(threads, capacity, cache);
+        if (metricsSeconds > 0) startMetricsReporter(daemon, metricsSeconds);
+
+        if (port < 0) {
+            try {
+                daemon.serve(System.in, System.out, null);
+            }
+            finally {
+                daemon.close();
+                cache.close();
+            }
+            System.err.println(daemon.metrics());
+            return;
+        }
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("listening on " + server.getLocalSocketAddress());
+            while (true) {
+                final Socket socket = server.accept();
+                Thread reader = new Thread(() -> {
+                    try {
+                        daemon.serve(socket.getInputStream(), socket.getOutputStream(), socket);
+                    }
+                    catch (IOException | InterruptedException e) {
+                        // the connection is gone; requests already queued still finish
+                    }
+                }, "connection-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            }
+        }
+    }
+
+    // progress callback abandoning a search that has run longer than millis. Engines report
+    // progress every few tens of thousands of expansions and HDA* every few milliseconds,
+    // so the limit is overrun by at most that much work
+    private static Consumer<SolverStats> timeLimit(final long millis) {
+        final long limitNanos = millis * 1000000;
+        return stats -> {
+            if (stats.wallNanos() > limitNanos) {
+                throw new SearchLimitException(TIME_LIMIT_EXCEEDED);
+            }
+        };
+    }
+
+    // print the metrics to standard error every so many seconds
+    private static void startMetricsReporter(final SolverDaemon daemon, final int seconds) {
+        Thread reporter = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(seconds * 1000L);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                System.err.println(daemon.metrics());
+            }
+        }, "metrics");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+}
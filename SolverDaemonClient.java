@@ -0,0 +1,116 @@
+/* *****************************************************************************
+ *  Compilation:  javac-algs4 SolverDaemonClient.java
+ *  Execution:    java-algs4 SolverDaemonClient port filename1.txt ... [batch.bin ...]
+ *  Dependencies: BatchWriter.java BatchReader.java
+ *
+ *  Description: Local test client for SolverDaemon. Sends one request per
+ *               board in the given puzzle text files and batches, labelled
+ *               as PuzzleChecker labels them, from one thread while printing
+ *               the responses as they arrive on another. Once every request
+ *               is answered it asks for the daemon's metrics, prints them
+ *               and the client's own throughput.
+ *
+ *               % java-algs4 SolverDaemonClient 7477 puzzle3x3-0*.txt
+ *               {"id":"puzzle3x3-00.txt","moves":0,"solution":"",...}
+ *               ...
+ *               {"uptime_s":12.0,"received":10,"completed":10,...}
+ *               10 responses in 0.05 s: 200.0 requests/s
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SolverDaemonClient {
+    private SolverDaemonClient() { }
+
+    // request line solving board, identified by label
+    static String request(String label, Board board) {
+        StringBuilder line = new StringBuilder("{\"id\":\"");
+        line.append(SolverStats.escape(label)).append("\",\"tiles\":[");
+        int n = board.dimension();
+        for (int cell = 0; cell < n * n; cell++) {
+            if (cell > 0) line.append(',');
+            line.append(board.tileAt(cell));
+        }
+        return line.append("]}").toString();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[0]);
+        final List<String> requests = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].endsWith(".bin")) {
+                requests.add(request(args[i], BatchWriter.readText(args[i])));
+                continue;
+            }
+            try (BatchReader batch = new BatchReader(new File(args[i]))) {
+                while (batch.hasNext()) {
+                    String label = args[i] + "#" + batch.position();
+                    requests.add(request(label, batch.next()));
+                }
+            }
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                                                                         StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.UTF_8));
+            long start = System.nanoTime();
+            // the daemon stops reading while its queue is full, which blocks this writer in
+            // turn, so requests go out on their own thread
+            final IOException[] sendFailure = new IOException[1];
+            Thread sender = new Thread(() -> {
+                try {
+                    for (String request : requests) out.write(request + "\n");
+                    out.flush();
+                }
+                catch (IOException e) {
+                    // ending the input wakes the read below instead of leaving it waiting
+                    // for responses that will never come
+                    sendFailure[0] = e;
+                    try {
+                        socket.shutdownInput();
+                    }
+                    catch (IOException ignored) {
+                        // already failing
+                    }
+                }
+            }, "sender");
+            sender.start();
+
+            try {
+                for (int i = 0; i < requests.size(); i++) {
+                    String response = in.readLine();
+                    if (response == null) throw new IOException("daemon closed the connection");
+                    StdOut.println(response);
+                }
+            }
+            catch (IOException e) {
+                sender.join();
+                if (sendFailure[0] != null) throw sendFailure[0];
+                throw e;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            sender.join();
+            out.write("{\"op\":\"metrics\"}\n");
+            out.flush();
+            StdOut.println(in.readLine());
+            socket.shutdownOutput();
+            StdOut.printf("%d responses in %.2f s: %.1f requests/s%n", requests.size(), seconds,
+                          requests.size() / seconds);
+        }
+    }
+}
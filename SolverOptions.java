@@ -0,0 +1,156 @@
+/* *****************************************************************************
+ *  Description: Optional settings for Solver. Each setter returns this so that
+ *               settings can be chained; anything left unset keeps Solver's
+ *               default behaviour.
+ **************************************************************************** */
+
+import java.io.File;
+import java.util.function.Consumer;
+
+public class SolverOptions {
+    // boards at least this wide are solved with IDA* unless an engine is chosen
+    private static final int IDA_STAR_MIN_DIMENSION = 4;
+    // weight of the first ARA* pass when only a deadline or budget is given
+    private static final double DEFAULT_SUBOPTIMALITY = 3.0;
+
+    private Solver.Engine engine = null;
+    private Heuristic heuristic = null;
+    private long memoryLimit = 0;
+    private Consumer<SolverStats> progress = null;
+    private long progressIntervalMillis = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double suboptimality = 0.0;
+    private long deadlineMillis = 0;
+    private long nodeBudget = 0;
+    private File scratchDirectory = null;
+
+    // search engine to run; by default the 3x3 table when it is built and no heuristic is
+    // chosen, IDA* for 4x4 and larger boards, A* otherwise
+    public SolverOptions withEngine(Solver.Engine selectedEngine) {
+        this.engine = selectedEngine;
+        return this;
+    }
+
+    // heuristic guiding the search; by default the pattern database for 4x4 boards when its
+    // tables are built, Manhattan otherwise. Boards it does not support fall back to Manhattan
+    public SolverOptions withHeuristic(Heuristic selectedHeuristic) {
+        this.heuristic = selectedHeuristic;
+        return this;
+    }
+
+    // cap on the estimated bytes a search may retain; a search that would exceed it throws
+    // SearchLimitException. IDA* retains memory linear in the depth and never hits it; the
+    // EXTERNAL engine sizes its in-memory runs to fit instead. 0 (the default) means no cap
+    public SolverOptions withMemoryLimit(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("memory limit cannot be negative");
+        this.memoryLimit = bytes;
+        return this;
+    }
+
+    // worker threads of the HDA_STAR engine; by default one per available processor
+    public SolverOptions withThreads(int count) {
+        if (count < 1) throw new IllegalArgumentException("need at least one thread");
+        this.threads = count;
+        return this;
+    }
+
+    // accept a first solution at most epsilon times longer than the shortest, then keep
+    // improving it until it is optimal or the deadline or node budget runs out. Setting any
+    // of the three selects the ARA_STAR engine unless another engine is chosen
+    public SolverOptions withSuboptimality(double epsilon) {
+        if (!(epsilon >= 1.0)) throw new IllegalArgumentException("epsilon must be at least 1");
+        this.suboptimality = epsilon;
+        return this;
+    }
+
+    // stop improving an ARA_STAR solution once this many milliseconds have passed since the
+    // solve began; the first solution is always completed. 0 (the default) means no deadline
+    public SolverOptions withDeadline(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("deadline cannot be negative");
+        this.deadlineMillis = millis;
+        return this;
+    }
+
+    // stop improving an ARA_STAR solution once this many nodes have been expanded; 0 (the
+    // default) means no budget
+    public SolverOptions withNodeBudget(long nodes) {
+        if (nodes < 0) throw new IllegalArgumentException("node budget cannot be negative");
+        this.nodeBudget = nodes;
+        return this;
+    }
+
+    // directory under which the EXTERNAL engine keeps its layer files; by default the one
+    // named by java.io.tmpdir. The files are deleted when the search ends
+    public SolverOptions withScratchDirectory(File directory) {
+        if (directory == null) throw new IllegalArgumentException("argument cannot be null");
+        this.scratchDirectory = directory;
+        return this;
+    }
+
+    // callback handed the live statistics of a running search about every intervalMillis;
+    // it runs on the solving thread, so it should return quickly. HDA_STAR calls it while
+    // its workers run but only adds up their counts once they finish. An exception thrown
+    // by the callback abandons the search and is rethrown from the solver
+    public SolverOptions withProgress(Consumer<SolverStats> callback, long intervalMillis) {
+        if (intervalMillis < 0) throw new IllegalArgumentException("interval cannot be negative");
+        this.progress = callback;
+        this.progressIntervalMillis = intervalMillis;
+        return this;
+    }
+
+    double suboptimality() {
+        return suboptimality > 0 ? suboptimality : DEFAULT_SUBOPTIMALITY;
+    }
+
+    long deadlineMillis() {
+        return deadlineMillis;
+    }
+
+    long nodeBudget() {
+        return nodeBudget;
+    }
+
+    File scratchDirectory() {
+        if (scratchDirectory != null) return scratchDirectory;
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    long memoryLimit() {
+        return memoryLimit;
+    }
+
+    // the heuristic that will guide the search on board
+    Heuristic heuristicFor(Board board) {
+        if (heuristic != null && heuristic.supports(board.dimension())) return heuristic;
+        if (heuristic == null) {
+            PatternDatabase patternDatabase = PatternDatabase.shared();
+            if (patternDatabase != null && patternDatabase.supports(board.dimension())) {
+                return patternDatabase;
+            }
+        }
+        return new ManhattanHeuristic();
+    }
+
+    // fresh statistics for one search, reporting to the progress callback if one is set
+    SolverStats newStats(Solver.Engine selectedEngine, Heuristic selectedHeuristic) {
+        return new SolverStats(selectedEngine.name(), selectedHeuristic.toString(), progress,
+                               progressIntervalMillis * 1000000);
+    }
+
+    // the engine that will solve board
+    Solver.Engine engineFor(Board board) {
+        if (engine != null) return engine;
+        // a chosen heuristic asks for a search, which the table would skip
+        if (heuristic == null && board.dimension() == EightPuzzleTable.DIMENSION
+                && EightPuzzleTable.shared() != null) {
+            return Solver.Engine.TABLE;
+        }
+        if (suboptimality > 0 || deadlineMillis > 0 || nodeBudget > 0) return Solver.Engine.ARA_STAR;
+        if (board.dimension() >= IDA_STAR_MIN_DIMENSION) return Solver.Engine.IDA_STAR;
+        return Solver.Engine.ASTAR;
+    }
+}
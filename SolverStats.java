@@ -0,0 +1,238 @@
+/* *****************************************************************************
+ *  Description: What a Solver's search did: nodes expanded and generated,
+ *               duplicates pruned, peak open-list size, estimated bytes
+ *               retained, effective branching factor, and wall and CPU time.
+ *               Engines update it while they run, so a progress callback set
+ *               with SolverOptions.withProgress sees live numbers; after the
+ *               solve it is final. Each instance also formats itself as a CSV
+ *               row or a JSON line for dashboards.
+ **************************************************************************** */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+public class SolverStats {
+    // the progress callback's clock is read once per this many expansions
+    private static final long PROGRESS_CHECK_MASK = (1 << 16) - 1;
+    private static final String CSV_HEADER = "engine,heuristic,moves,nodes_expanded,"
+            + "nodes_generated,duplicates_pruned,peak_open,bytes_retained,branching_factor,"
+            + "wall_ms,cpu_ms";
+
+    private final String engine;
+    private final String heuristic;
+    private final Consumer<SolverStats> progress;
+    private final long progressIntervalNanos;
+    private int moves = -1;
+    private long nodesExpanded = 0;
+    private long nodesGenerated = 0;
+    private long duplicatesPruned = 0;
+    private long peakOpen = 0;
+    private long bytesRetained = 0;
+    private long startNanos;
+    private long startCpuNanos;
+    private long wallNanos = 0;
+    private long cpuNanos = 0;
+    // CPU time of threads the search ran besides the solving thread, -1 if unmeasurable
+    private long otherCpuNanos = 0;
+    private long lastProgressNanos;
+    private boolean finished = false;
+
+    SolverStats(String engine, String heuristic, Consumer<SolverStats> progress,
+                long progressIntervalNanos) {
+        this.engine = engine;
+        this.heuristic = heuristic;
+        this.progress = progress;
+        this.progressIntervalNanos = progressIntervalNanos;
+    }
+
+    // search engine that ran
+    public String engine() {
+        return engine;
+    }
+
+    // heuristic that guided the search
+    public String heuristic() {
+        return heuristic;
+    }
+
+    // moves in the solution, -1 if unsolvable or not solved yet
+    public int moves() {
+        return moves;
+    }
+
+    // nodes whose successors were generated
+    public long nodesExpanded() {
+        return nodesExpanded;
+    }
+
+    // successors created, including the root
+    public long nodesGenerated() {
+        return nodesGenerated;
+    }
+
+    // successors dropped because the same board was already reached in as few moves. Moves
+    // that would only undo the previous one are never generated and not counted; IDA*
+    // keeps no record of reached boards, so it prunes none
+    public long duplicatesPruned() {
+        return duplicatesPruned;
+    }
+
+    // largest number of nodes waiting in the open list at once (0 for IDA*, which has none;
+    // for HDA* the sum of each worker's peak)
+    public long peakOpenListSize() {
+        return peakOpen;
+    }
+
+    // estimated peak heap bytes held by the search structures
+    public long bytesRetained() {
+        return bytesRetained;
+    }
+
+    // b such that a uniform tree of depth moves() with branching factor b has
+    // nodesGenerated() nodes; 0 when the solution is empty
+    public double effectiveBranchingFactor() {
+        if (moves <= 0 || nodesGenerated <= 1) return 0.0;
+        double low = 1.0;
+        double high = Math.max(2.0, nodesGenerated);
+        for (int i = 0; i < 100; i++) {
+            double mid = (low + high) / 2;
+            if (treeSize(mid, moves) < nodesGenerated) low = mid;
+            else high = mid;
+        }
+        return (low + high) / 2;
+    }
+
+    // elapsed wall-clock time of the search in nanoseconds
+    public long wallNanos() {
+        return finished ? wallNanos : System.nanoTime() - startNanos;
+    }
+
+    // CPU time the solving thread and any worker threads spent in the search in
+    // nanoseconds, -1 if the JVM cannot measure it
+    public long cpuNanos() {
+        if (finished) return cpuNanos;
+        long now = threadCpuNanos();
+        if (now < 0 || startCpuNanos < 0 || otherCpuNanos < 0) return -1;
+        return now - startCpuNanos + otherCpuNanos;
+    }
+
+    // column names matching toCsv()
+    public static String csvHeader() {
+        return CSV_HEADER;
+    }
+
+    // one CSV row of the numbers, in the order of csvHeader()
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%d,%.4f,%.3f,%.3f", engine,
+                             heuristic, moves, nodesExpanded, nodesGenerated, duplicatesPruned,
+                             peakOpen, bytesRetained, effectiveBranchingFactor(),
+                             wallNanos() / 1e6, cpuNanos() / 1e6);
+    }
+
+    // one JSON object on a single line, tagged with the puzzle it describes
+    public String toJson(String puzzle) {
+        return String.format(Locale.ROOT, "{\"puzzle\":\"%s\",\"engine\":\"%s\","
+                                     + "\"heuristic\":\"%s\",\"moves\":%d,\"nodes_expanded\":%d,"
+                                     + "\"nodes_generated\":%d,\"duplicates_pruned\":%d,"
+                                     + "\"peak_open\":%d,\"bytes_retained\":%d,"
+                                     + "\"branching_factor\":%.4f,\"wall_ms\":%.3f,"
+                                     + "\"cpu_ms\":%.3f}",
+                             escape(puzzle), engine, heuristic, moves, nodesExpanded,
+                             nodesGenerated, duplicatesPruned, peakOpen, bytesRetained,
+                             effectiveBranchingFactor(), wallNanos() / 1e6, cpuNanos() / 1e6);
+    }
+
+    public String toString() {
+        return toJson("");
+    }
+
+    // start the clocks
+    void start() {
+        startNanos = System.nanoTime();
+        startCpuNanos = threadCpuNanos();
+        lastProgressNanos = startNanos;
+    }
+
+    // stop the clocks and record the solution length
+    void finish(int solutionMoves) {
+        wallNanos = System.nanoTime() - startNanos;
+        cpuNanos = cpuNanos();
+        moves = solutionMoves;
+        finished = true;
+    }
+
+    // count one expansion, calling the progress callback when its interval has passed
+    void expanded() {
+        nodesExpanded++;
+        if ((nodesExpanded & PROGRESS_CHECK_MASK) == 0) poll();
+    }
+
+    // call the progress callback if its interval has passed; for engines that keep their
+    // counts elsewhere while they run, and look at the clock instead
+    void poll() {
+        if (progress == null) return;
+        long now = System.nanoTime();
+        if (now - lastProgressNanos >= progressIntervalNanos) {
+            lastProgressNanos = now;
+            progress.accept(this);
+        }
+    }
+
+    // add counts gathered elsewhere, such as by the workers of a parallel search
+    void record(long expandedCount, long generatedCount, long prunedCount) {
+        nodesExpanded += expandedCount;
+        nodesGenerated += generatedCount;
+        duplicatesPruned += prunedCount;
+    }
+
+    // add the CPU time of a thread of the search other than the solving thread, such as a
+    // worker of a parallel search; -1 if it could not be measured
+    void recordCpu(long nanos) {
+        otherCpuNanos = nanos < 0 || otherCpuNanos < 0 ? -1 : otherCpuNanos + nanos;
+    }
+
+    void generated(long count) {
+        nodesGenerated += count;
+    }
+
+    void pruned() {
+        duplicatesPruned++;
+    }
+
+    // record the current open-list size and retained bytes, keeping the peaks
+    void observe(long openListSize, long bytes) {
+        if (openListSize > peakOpen) peakOpen = openListSize;
+        if (bytes > bytesRetained) bytesRetained = bytes;
+    }
+
+    // 1 + b + b^2 + ... + b^depth
+    private static double treeSize(double b, int depth) {
+        double size = 1.0;
+        double level = 1.0;
+        for (int i = 0; i < depth; i++) {
+            level *= b;
+            size += level;
+        }
+        return size;
+    }
+
+    // CPU time of the current thread in nanoseconds, -1 if the JVM cannot measure it
+    static long threadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isCurrentThreadCpuTimeSupported()) return -1;
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    // nearest-rank percentile of sorted values, 0 if there are none
+    static double percentile(double[] sorted, int p) {
+        if (sorted.length == 0) return 0.0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
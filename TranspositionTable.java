@@ -0,0 +1,111 @@
+/* *****************************************************************************
+ *  Description: Closed set for the A* search. An open-addressing, linear-probing
+ *               hash table from a board's compact key to the fewest moves found
+ *               so far to reach it. Keys and move counts live in parallel
+ *               primitive arrays, so lookups and inserts never box.
+ *
+ *               Footprint: a packed board (up to 4x4) costs one long key and
+ *               one int per slot, i.e. 12 bytes. Wider boards add a reference
+ *               per slot to resolve hash collisions. The table doubles once it
+ *               is half full, so a table holding k boards uses between
+ *               2k and 4k slots.
+ **************************************************************************** */
+
+class TranspositionTable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    // bytes of one slot for packed boards: long key + int moves
+    private static final int PACKED_SLOT_BYTES = Long.BYTES + Integer.BYTES;
+    // extra bytes of one slot for wide boards: a (compressed) reference
+    private static final int REFERENCE_BYTES = 4;
+
+    private final boolean packed;
+    private long[] keys;
+    // fewest moves plus one; 0 marks an empty slot
+    private int[] movesPlusOne;
+    // boards behind the keys, only kept for wide boards whose keys are hashes
+    private Board[] boards;
+    private int size = 0;
+    private int mask;
+
+    // create an empty table for boards of the same shape as the given board
+    TranspositionTable(Board shape) {
+        packed = shape.isPacked();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // fewest moves recorded for board, or -1 if it has never been seen
+    int get(Board board) {
+        int slot = find(board, board.key());
+        return movesPlusOne[slot] - 1;
+    }
+
+    // records that board can be reached in the given number of moves. Returns
+    // false if the board was already reached in as few moves, true otherwise
+    boolean offer(Board board, int moves) {
+        long key = board.key();
+        int slot = find(board, key);
+        if (movesPlusOne[slot] != 0) {
+            if (movesPlusOne[slot] - 1 <= moves) return false;
+            movesPlusOne[slot] = moves + 1;
+            return true;
+        }
+        keys[slot] = key;
+        movesPlusOne[slot] = moves + 1;
+        if (!packed) boards[slot] = board;
+        if (++size * 2 > keys.length) resize();
+        return true;
+    }
+
+    // number of distinct boards in the table
+    int size() {
+        return size;
+    }
+
+    // bytes held by the table's arrays (excluding the boards themselves)
+    long footprintBytes() {
+        return (long) keys.length * bytesPerSlot();
+    }
+
+    // bytes of a single slot
+    int bytesPerSlot() {
+        return packed ? PACKED_SLOT_BYTES : PACKED_SLOT_BYTES + REFERENCE_BYTES;
+    }
+
+    // slot holding board, or the empty slot where it belongs
+    private int find(Board board, long key) {
+        int slot = mix(key) & mask;
+        while (movesPlusOne[slot] != 0) {
+            if (keys[slot] == key && (packed || boards[slot].equals(board))) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldMoves = movesPlusOne;
+        Board[] oldBoards = boards;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldMoves[i] == 0) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (movesPlusOne[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            movesPlusOne[slot] = oldMoves[i];
+            if (!packed) boards[slot] = oldBoards[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        movesPlusOne = new int[capacity];
+        boards = packed ? null : new Board[capacity];
+        mask = capacity - 1;
+    }
+
+    // spread the key's bits so that nearby packed words land in distant slots
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29) ^ (h >>> 47));
+    }
+}
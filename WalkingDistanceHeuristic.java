@@ -0,0 +1,149 @@
+/* *****************************************************************************
+ *  Description: Walking distance (Takahashi). Looking only at rows, a board is
+ *               reduced to how many tiles of each goal row sit in each row, plus
+ *               the blank's row; a vertical move swaps the blank with any tile of
+ *               a neighboring row. A breadth-first search from the goal over
+ *               these reduced states gives the fewest vertical moves of every
+ *               state, and the same table read on columns gives the fewest
+ *               horizontal moves. Their sum is admissible and dominates
+ *               Manhattan, as it accounts for tiles blocking each other.
+ *
+ *               A state packs its counts in 3 bits each plus the blank's row,
+ *               which fits boards up to 4x4 (24964 states); larger boards are
+ *               not supported. The table is built once per dimension. A move
+ *               changes only the reduced state of its own axis, by one tile's
+ *               count moving between two lines and the blank's line with it;
+ *               the board keeps both states current that way from the first
+ *               estimate on, so update() is two table lookups.
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class WalkingDistanceHeuristic implements Heuristic {
+    private static final int MAX_DIMENSION = 4;
+    private static final int COUNT_BITS = 3;
+    private static final int BLANK_SHIFT = MAX_DIMENSION * MAX_DIMENSION * COUNT_BITS;
+    // tables for dimensions 2..4, built on first use
+    private static final Table[] TABLES = new Table[MAX_DIMENSION + 1];
+
+    public int estimate(Board board) {
+        Table table = tableFor(board.dimension());
+        cache(board);
+        return table.distance(board.walkingRows()) + table.distance(board.walkingColumns());
+    }
+
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int n = board.dimension();
+        Table table = tableFor(n);
+        cache(board);
+        // a vertical move only changes the row state, a horizontal one the column state
+        boolean rows = from / n != to / n;
+        long after = rows ? board.walkingRows() : board.walkingColumns();
+        int group = rows ? (tile - 1) / n : (tile - 1) % n;
+        int lineFrom = rows ? from / n : from % n;
+        int lineTo = rows ? to / n : to % n;
+        // undo the move on the reduced state: the tile goes back and so does the blank
+        long before = slide(after, n, group, lineTo, lineFrom);
+        return estimate - table.distance(before) + table.distance(after);
+    }
+
+    // reduced state after a tile of goal line group moves from line to line toward the
+    // blank, which takes the tile's old line; code is unchanged when the lines are equal
+    static long slide(long code, int n, int group, int from, int to) {
+        if (from == to) return code;
+        return code - (1L << shift(n, from, group)) + (1L << shift(n, to, group))
+                - ((long) to << BLANK_SHIFT) + ((long) from << BLANK_SHIFT);
+    }
+
+    // give board its reduced states, unless it already carries them
+    private static void cache(Board board) {
+        if (board.walkingRows() == -1) board.cacheWalking(code(board, true), code(board, false));
+    }
+
+    public boolean supports(int dimension) {
+        return dimension <= MAX_DIMENSION;
+    }
+
+    public String toString() {
+        return "walking-distance";
+    }
+
+    // reduced state of board on rows (or on columns when rows is false)
+    private static long code(Board board, boolean rows) {
+        int n = board.dimension();
+        long code = 0L;
+        for (int cell = 0; cell < n * n; cell++) {
+            int tile = board.tileAt(cell);
+            if (tile == 0) continue;
+            int line = rows ? cell / n : cell % n;
+            int group = rows ? (tile - 1) / n : (tile - 1) % n;
+            code += 1L << shift(n, line, group);
+        }
+        int blank = board.blankCell();
+        return code | ((long) (rows ? blank / n : blank % n) << BLANK_SHIFT);
+    }
+
+    // bit offset of the count of tiles of goal line group sitting in line
+    private static int shift(int n, int line, int group) {
+        return (line * n + group) * COUNT_BITS;
+    }
+
+    private static synchronized Table tableFor(int n) {
+        if (n > MAX_DIMENSION) {
+            throw new IllegalArgumentException("walking distance supports boards up to "
+                                                       + MAX_DIMENSION + "x" + MAX_DIMENSION);
+        }
+        if (TABLES[n] == null) TABLES[n] = new Table(n);
+        return TABLES[n];
+    }
+
+    // fewest moves of every reduced state, sorted by code for binary search
+    private static class Table {
+        private final long[] codes;
+        private final byte[] distances;
+
+        private Table(int n) {
+            long goal = (long) (n - 1) << BLANK_SHIFT;
+            for (int line = 0; line < n; line++) {
+                int tiles = line == n - 1 ? n - 1 : n;
+                goal += (long) tiles << shift(n, line, line);
+            }
+
+            // breadth-first search from the goal over reduced states
+            Map<Long, Integer> depth = new HashMap<>();
+            long[] queue = new long[1024];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = goal;
+            depth.put(goal, 0);
+            while (head < tail) {
+                long code = queue[head++];
+                int d = depth.get(code);
+                int blankLine = (int) (code >>> BLANK_SHIFT);
+                for (int line = blankLine - 1; line <= blankLine + 1; line += 2) {
+                    if (line < 0 || line >= n) continue;
+                    for (int group = 0; group < n; group++) {
+                        long count = (code >>> shift(n, line, group)) & ((1 << COUNT_BITS) - 1);
+                        if (count == 0) continue;
+                        long next = slide(code, n, group, line, blankLine);
+                        if (depth.containsKey(next)) continue;
+                        depth.put(next, d + 1);
+                        if (tail == queue.length) queue = Arrays.copyOf(queue, 2 * tail);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            codes = Arrays.copyOf(queue, tail);
+            Arrays.sort(codes);
+            distances = new byte[tail];
+            for (int i = 0; i < tail; i++) distances[i] = (byte) (int) depth.get(codes[i]);
+        }
+
+        private int distance(long code) {
+            return distances[Arrays.binarySearch(codes, code)];
+        }
+    }
+}
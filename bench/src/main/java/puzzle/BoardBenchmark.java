@@ -0,0 +1,92 @@
+/* *****************************************************************************
+ *  Description: Microbenchmarks of the Board primitives. Board caches its
+ *               Manhattan and Hamming distances, so those are measured on a
+ *               freshly constructed board; subtract the construct benchmark to
+ *               get the cost of the distance itself. The move benchmarks apply
+ *               and undo one move in place and should report 0 B/op under
+ *               -prof gc.
+ **************************************************************************** */
+
+package puzzle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    // a packed 3x3 and 4x4 board and a 10x10 board stored as bytes
+    @Param({ "puzzle3x3-31.txt", "puzzle4x4-45.txt", "puzzle16.txt" })
+    public String file;
+
+    private int[][] tiles;
+    private Board board;
+    private Board equalBoard;
+    private Board movingBoard;
+    private int direction;
+
+    @Setup
+    public void setUp() {
+        tiles = Puzzles.tiles(file);
+        board = new Board(tiles);
+        equalBoard = new Board(tiles);
+        movingBoard = new Board(tiles);
+        movingBoard.manhattan();
+        movingBoard.hamming();
+        direction = Integer.numberOfTrailingZeros(movingBoard.legalMoves());
+    }
+
+    @Benchmark
+    public Board construct() {
+        return new Board(tiles);
+    }
+
+    @Benchmark
+    public int manhattan() {
+        return new Board(tiles).manhattan();
+    }
+
+    @Benchmark
+    public int hamming() {
+        return new Board(tiles).hamming();
+    }
+
+    @Benchmark
+    public void neighbors(Blackhole blackhole) {
+        for (Board neighbor : board.neighbors()) blackhole.consume(neighbor);
+    }
+
+    @Benchmark
+    public boolean equalsBoard() {
+        return board.equals(equalBoard);
+    }
+
+    @Benchmark
+    public Board twin() {
+        return board.twin();
+    }
+
+    @Benchmark
+    public int applyAndUndoMove() {
+        movingBoard.applyMove(direction);
+        int manhattan = movingBoard.manhattan();
+        movingBoard.undoMove(direction);
+        return manhattan;
+    }
+}
@@ -0,0 +1,38 @@
+/* *****************************************************************************
+ *  Description: Loads puzzle files for the benchmarks from -Dpuzzle.dir
+ *               (the repository root by default).
+ **************************************************************************** */
+
+package puzzle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+final class Puzzles {
+    private static final String DIRECTORY = System.getProperty("puzzle.dir", "..");
+
+    private Puzzles() { }
+
+    // tiles of the board stored in filename, in the text format PuzzleChecker reads
+    static int[][] tiles(String filename) {
+        Path path = Paths.get(DIRECTORY, filename);
+        String text;
+        try {
+            text = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not read " + path, e);
+        }
+        String[] tokens = text.trim().split("\\s+");
+        int n = Integer.parseInt(tokens[0]);
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n * n; i++) {
+            tiles[i / n][i % n] = Integer.parseInt(tokens[i + 1]);
+        }
+        return tiles;
+    }
+}
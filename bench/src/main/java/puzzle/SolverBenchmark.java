@@ -0,0 +1,51 @@
+/* *****************************************************************************
+ *  Description: End-to-end Solver runs on representative files of the corpus,
+ *               from an 8-puzzle to the hardest bundled 15-puzzle. Each
+ *               operation is one complete solve; run with -prof gc to see the
+ *               allocation rate and GC time of the search.
+ **************************************************************************** */
+
+package puzzle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class SolverBenchmark {
+    @Param({ "puzzle3x3-31.txt", "puzzle4x4-45.txt", "puzzle4x4-78.txt", "puzzle50.txt" })
+    public String file;
+
+    // AUTO keeps the Solver's own choice of engine
+    @Param({ "AUTO" })
+    public String engine;
+
+    private Board initial;
+
+    @Setup
+    public void setUp() {
+        initial = new Board(Puzzles.tiles(file));
+    }
+
+    @Benchmark
+    public int solve() {
+        SolverOptions options = new SolverOptions();
+        if (!engine.equals("AUTO")) options.withEngine(Solver.Engine.valueOf(engine));
+        return new Solver(initial, options).moves();
+    }
+}